@@ -0,0 +1,182 @@
+package com.example.tunemerge.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.example.tunemerge.model.TrackRecord;
+
+/**
+ * Representative inputs for the benchmarks: real-world shaped YouTube titles
+ * and Spotify playlist pages with the same fields and nesting as the API.
+ */
+final class BenchmarkData {
+
+    static final List<String> YOUTUBE_TITLES = List.of(
+            "Daft Punk - Get Lucky (Official Audio) ft. Pharrell Williams, Nile Rodgers",
+            "The Weeknd - Blinding Lights (Official Video)",
+            "Arctic Monkeys - Do I Wanna Know? (Official Video)",
+            "Queen – Bohemian Rhapsody (Official Video Remastered)",
+            "Billie Eilish - bad guy (Lyrics)",
+            "Tame Impala: The Less I Know The Better [Official Video]",
+            "Fleetwood Mac | Dreams (Official Music Video)",
+            "Radiohead - Creep [HD]",
+            "Kendrick Lamar - HUMBLE. (Official Video)",
+            "Dua Lipa - Levitating Featuring DaBaby (Official Music Video)",
+            "Nirvana - Smells Like Teen Spirit (Official Music Video)",
+            "Coldplay - Yellow (Official Video) [4K]",
+            "Bad Bunny - Tití Me Preguntó (Video Oficial)",
+            "Mac DeMarco - Chamber Of Reflection (Audio)",
+            "lofi hip hop radio - beats to relax/study to",
+            "Frank Ocean - Pink + White (Lyric Video)");
+
+    static final List<String[]> SCORING_PAIRS = List.of(
+            new String[] {"Get Lucky", "Daft Punk", "Get Lucky (feat. Pharrell Williams and Nile Rodgers)", "Daft Punk"},
+            new String[] {"Blinding Lights", "The Weeknd", "Blinding Lights", "The Weeknd"},
+            new String[] {"Do I Wanna Know?", "Arctic Monkeys", "Do I Wanna Know?", "Arctic Monkeys"},
+            new String[] {"Bohemian Rhapsody", "Queen", "Bohemian Rhapsody - Remastered 2011", "Queen"},
+            new String[] {"bad guy", "Billie Eilish", "bad guy (with Justin Bieber)", "Billie Eilish"},
+            new String[] {"The Less I Know The Better", "Tame Impala", "The Less I Know The Better", "Tame Impala"},
+            new String[] {"Dreams", "Fleetwood Mac", "Dreams - 2004 Remaster", "Fleetwood Mac"},
+            new String[] {"Creep", "Radiohead", "Creep (Acoustic)", "Radiohead"},
+            new String[] {"HUMBLE.", "Kendrick Lamar", "Humble", "Skylar Grey"},
+            new String[] {"lofi hip hop radio - beats to relax/study to", "", "Snowman", "WYS"});
+
+    private static final String MARKETS = "\"AD\",\"AE\",\"AR\",\"AT\",\"AU\",\"BE\",\"BG\",\"BR\",\"CA\",\"CH\",\"CL\",\"CO\","
+            + "\"CZ\",\"DE\",\"DK\",\"EE\",\"ES\",\"FI\",\"FR\",\"GB\",\"GR\",\"HK\",\"HU\",\"ID\",\"IE\",\"IL\",\"IN\",\"IS\",\"IT\","
+            + "\"JP\",\"KR\",\"LT\",\"LU\",\"LV\",\"MX\",\"MY\",\"NL\",\"NO\",\"NZ\",\"PE\",\"PH\",\"PL\",\"PT\",\"SE\",\"SG\",\"SK\","
+            + "\"TH\",\"TR\",\"TW\",\"US\",\"UY\",\"VN\",\"ZA\"";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return a /playlists/{id}/tracks page with the full, unfiltered item shape
+     */
+    static String spotifyTracksPage(int items, int offset, int total) {
+        Random random = new Random(42 + offset);
+        StringBuilder json = new StringBuilder(items * 4096);
+        json.append("{\"href\":\"https://api.spotify.com/v1/playlists/37i9dQZF1DXcBWIGoYBM5M/tracks?offset=")
+            .append(offset).append("&limit=").append(items).append("\",\"items\":[");
+        for (int i = 0; i < items; i++) {
+            String id = spotifyId(random);
+            String albumId = spotifyId(random);
+            String artistId = spotifyId(random);
+            String[] pair = SCORING_PAIRS.get(random.nextInt(SCORING_PAIRS.size()));
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("{\"added_at\":\"2024-10-27T09:18:20Z\",\"added_by\":{\"external_urls\":{\"spotify\":\"https://open.spotify.com/user/spotify\"},")
+                .append("\"href\":\"https://api.spotify.com/v1/users/spotify\",\"id\":\"spotify\",\"type\":\"user\",\"uri\":\"spotify:user:spotify\"},")
+                .append("\"is_local\":false,\"primary_color\":null,\"track\":{\"album\":{\"album_type\":\"album\",\"artists\":[")
+                .append(artist(artistId, pair[3])).append("],\"available_markets\":[").append(MARKETS).append("],")
+                .append("\"external_urls\":{\"spotify\":\"https://open.spotify.com/album/").append(albumId).append("\"},")
+                .append("\"href\":\"https://api.spotify.com/v1/albums/").append(albumId).append("\",\"id\":\"").append(albumId).append("\",\"images\":[")
+                .append(image(640)).append(',').append(image(300)).append(',').append(image(64)).append("],")
+                .append("\"name\":\"Album ").append(i).append("\",\"release_date\":\"2013-05-17\",\"release_date_precision\":\"day\",")
+                .append("\"total_tracks\":13,\"type\":\"album\",\"uri\":\"spotify:album:").append(albumId).append("\"},")
+                .append("\"artists\":[").append(artist(artistId, pair[3])).append("],\"available_markets\":[").append(MARKETS).append("],")
+                .append("\"disc_number\":1,\"duration_ms\":").append(150_000 + random.nextInt(150_000)).append(",\"episode\":false,\"explicit\":false,")
+                .append("\"external_ids\":{\"isrc\":\"USQX91300108\"},\"external_urls\":{\"spotify\":\"https://open.spotify.com/track/").append(id).append("\"},")
+                .append("\"href\":\"https://api.spotify.com/v1/tracks/").append(id).append("\",\"id\":\"").append(id).append("\",\"is_local\":false,")
+                .append("\"name\":\"").append(pair[2].replace("\"", "\\\"")).append("\",\"popularity\":").append(random.nextInt(100))
+                .append(",\"preview_url\":null,\"track\":true,\"track_number\":").append(1 + random.nextInt(13))
+                .append(",\"type\":\"track\",\"uri\":\"spotify:track:").append(id).append("\"},\"video_thumbnail\":{\"url\":null}}");
+        }
+        json.append("],\"limit\":").append(items).append(",\"next\":");
+        if (offset + items < total) {
+            json.append("\"https://api.spotify.com/v1/playlists/37i9dQZF1DXcBWIGoYBM5M/tracks?offset=").append(offset + items)
+                .append("&limit=").append(items).append('"');
+        } else {
+            json.append("null");
+        }
+        json.append(",\"offset\":").append(offset).append(",\"previous\":null,\"total\":").append(total).append('}');
+        return json.toString();
+    }
+
+    static List<TrackRecord> trackRecords(int count) {
+        Random random = new Random(7);
+        List<TrackRecord> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String id = spotifyId(random);
+            String[] pair = SCORING_PAIRS.get(random.nextInt(SCORING_PAIRS.size()));
+            records.add(new TrackRecord(id, "spotify:track:" + id, pair[2], pair[3], "Album " + i, 150_000 + random.nextInt(150_000)));
+        }
+        return records;
+    }
+
+    /**
+     * @return count synthetic {name, artist} pairs drawn from a fixed vocabulary, about 20 tracks per artist
+     */
+    static List<String[]> libraryTracks(int count) {
+        Random random = new Random(11);
+        int artists = Math.max(1, count / 20);
+        List<String[]> tracks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tracks.add(new String[] {words(random, 1 + random.nextInt(4)), artistName(random.nextInt(artists))});
+        }
+        return tracks;
+    }
+
+    /**
+     * @return count YouTube style titles, half of them decorated copies of library tracks
+     */
+    static List<String> playlistTitles(List<String[]> library, int count) {
+        Random random = new Random(13);
+        String[] decorations = {" (Official Video)", " (Lyrics)", " [HD]", " (Official Audio)", ""};
+        List<String> titles = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            if (random.nextBoolean()) {
+                String[] track = library.get(random.nextInt(library.size()));
+                titles.add(track[1] + " - " + track[0] + decorations[random.nextInt(decorations.length)]);
+            } else {
+                titles.add(artistName(random.nextInt(1_000_000)) + " - " + words(random, 1 + random.nextInt(4)));
+            }
+        }
+        return titles;
+    }
+
+    private static String words(Random random, int count) {
+        StringBuilder words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                words.append(' ');
+            }
+            words.append(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+        }
+        return words.toString();
+    }
+
+    private static String artistName(int n) {
+        return VOCABULARY[n % VOCABULARY.length] + " " + VOCABULARY[(n / VOCABULARY.length) % VOCABULARY.length] + " " + n;
+    }
+
+    private static final String[] VOCABULARY = {
+            "love", "night", "heart", "fire", "dream", "light", "rain", "summer", "dance", "blue", "gold", "wild",
+            "river", "star", "moon", "city", "home", "road", "time", "forever", "baby", "girl", "boy", "young",
+            "lonely", "electric", "midnight", "paradise", "shadow", "storm", "ocean", "desert", "sugar", "honey",
+            "broken", "crazy", "silver", "velvet", "neon", "echo", "ghost", "angel", "devil", "kings", "queens",
+            "rebel", "radio", "highway", "sunset", "sunrise", "thunder", "winter", "spring", "autumn", "stone",
+            "glass", "diamond", "paper", "tiger", "wolf", "bird", "sky", "island", "garden", "mirror", "window",
+            "secret", "promise", "memory", "story", "song", "rhythm", "blues", "soul", "funk", "disco", "satin",
+            "cherry", "lemon", "orange", "purple", "black", "white", "red", "green", "fever", "magic", "mystery"};
+
+    private static String artist(String id, String name) {
+        return "{\"external_urls\":{\"spotify\":\"https://open.spotify.com/artist/" + id + "\"},"
+            + "\"href\":\"https://api.spotify.com/v1/artists/" + id + "\",\"id\":\"" + id + "\",\"name\":\"" + name
+            + "\",\"type\":\"artist\",\"uri\":\"spotify:artist:" + id + "\"}";
+    }
+
+    private static String image(int size) {
+        return "{\"height\":" + size + ",\"url\":\"https://i.scdn.co/image/ab67616d0000b273" + size + "\",\"width\":" + size + "}";
+    }
+
+    private static String spotifyId(Random random) {
+        String alphabet = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+        char[] id = new char[22];
+        for (int i = 0; i < id.length; i++) {
+            id[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+        }
+        return new String(id);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.tunemerge.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.tunemerge.service.EditDistanceScorer;
+import com.example.tunemerge.service.TokenSetScorer;
+
+// cost of scoring one Spotify candidate, with (0.6) and without (0.0) early termination
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchScoringBenchmark {
+
+    @Param({"0.0", "0.6"})
+    public double minScore;
+
+    private final EditDistanceScorer editDistance = new EditDistanceScorer();
+    private final TokenSetScorer tokenSet = new TokenSetScorer();
+
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public void editDistance(Blackhole blackhole) {
+        for (String[] pair : BenchmarkData.SCORING_PAIRS) {
+            blackhole.consume(editDistance.score(pair[0], pair[1], pair[2], pair[3], minScore));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(10)
+    public void tokenSet(Blackhole blackhole) {
+        for (String[] pair : BenchmarkData.SCORING_PAIRS) {
+            blackhole.consume(tokenSet.score(pair[0], pair[1], pair[2], pair[3], minScore));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.tunemerge.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.tunemerge.model.TrackInfo;
+import com.example.tunemerge.service.MatchScorer;
+import com.example.tunemerge.service.MinHashBlocker;
+import com.example.tunemerge.service.TitleNormalizer;
+import com.example.tunemerge.service.TokenSetScorer;
+
+// overlap of a playlist a tenth the size of a stored library, MinHash/LSH blocking against scoring every pair
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class OverlapBlockingBenchmark {
+
+    private static final TitleNormalizer NORMALIZER = new TitleNormalizer();
+    private static final MatchScorer SCORER = new TokenSetScorer();
+
+    abstract static class Data {
+        List<String[]> library;
+        List<String> libraryTexts;
+        List<TrackInfo> items;
+        List<String> itemTexts;
+
+        void load(int tracks) {
+            library = BenchmarkData.libraryTracks(tracks);
+            libraryTexts = new ArrayList<>(tracks);
+            for (String[] track : library) {
+                libraryTexts.add(NORMALIZER.fold(track[0]) + ' ' + NORMALIZER.fold(track[1]));
+            }
+            items = new ArrayList<>();
+            itemTexts = new ArrayList<>();
+            for (String title : BenchmarkData.playlistTitles(library, Math.max(1, tracks / 10))) {
+                TrackInfo info = NORMALIZER.parse(title);
+                items.add(info);
+                itemTexts.add(NORMALIZER.fold(info.getTitle()) + ' ' + NORMALIZER.fold(info.getArtist()));
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Library extends Data {
+        @Param({"1000", "10000", "100000", "1000000"})
+        public int tracks;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            load(tracks);
+        }
+    }
+
+    // pairwise scoring grows with the square of the size, larger libraries take minutes per operation
+    @State(Scope.Benchmark)
+    public static class SmallLibrary extends Data {
+        @Param({"1000", "10000"})
+        public int tracks;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            load(tracks);
+        }
+    }
+
+    // bucketing the library included, as for a report whose library is not cached yet
+    @Benchmark
+    public int lshBlocking(Library data) {
+        MinHashBlocker.Query buckets = new MinHashBlocker(20, 4).bucket(data.libraryTexts).newQuery();
+        int matched = 0;
+        for (int i = 0; i < data.items.size(); i++) {
+            TrackInfo item = data.items.get(i);
+            double[] best = {MatchScorer.MATCH_THRESHOLD};
+            buckets.forEachCandidate(data.itemTexts.get(i), candidate -> {
+                String[] track = data.library.get(candidate);
+                best[0] = Math.max(best[0], SCORER.score(item.getTitle(), item.getArtist(), track[0], track[1], best[0]));
+            });
+            if (best[0] > MatchScorer.MATCH_THRESHOLD) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+
+    @Benchmark
+    public int pairwise(SmallLibrary data) {
+        int matched = 0;
+        for (TrackInfo item : data.items) {
+            double best = MatchScorer.MATCH_THRESHOLD;
+            for (String[] track : data.library) {
+                best = Math.max(best, SCORER.score(item.getTitle(), item.getArtist(), track[0], track[1], best));
+            }
+            if (best > MatchScorer.MATCH_THRESHOLD) {
+                matched++;
+            }
+        }
+        return matched;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.tunemerge.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.example.tunemerge.model.TrackInfo;
+import com.example.tunemerge.service.TitleNormalizer;
+
+// cost of turning one YouTube video title into (title, artist)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TitleParsingBenchmark {
+
+    private TitleNormalizer titleNormalizer;
+
+    @Setup
+    public void setup() {
+        titleNormalizer = new TitleNormalizer();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(16)
+    public void parse(Blackhole blackhole) {
+        for (String title : BenchmarkData.YOUTUBE_TITLES) {
+            blackhole.consume(titleNormalizer.parse(title));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(16)
+    public void normalizedKey(Blackhole blackhole) {
+        for (String title : BenchmarkData.YOUTUBE_TITLES) {
+            TrackInfo info = titleNormalizer.parse(title);
+            blackhole.consume(titleNormalizer.normalizedKey(info.getTitle(), info.getArtist()));
+        }
+    }
+
+    // the replaceAll chain the normalizer replaced, kept as a baseline
+    @Benchmark
+    @OperationsPerInvocation(16)
+    public void regexBaseline(Blackhole blackhole) {
+        for (String title : BenchmarkData.YOUTUBE_TITLES) {
+            String cleaned = title.replaceAll("(?i)(\\(Official.*?\\))|(\\[Official.*?\\])", "")
+                                  .replaceAll("(?i)(\\(Lyric.*?\\))|(\\[Lyric.*?\\])", "")
+                                  .replaceAll("(?i)(\\(Audio.*?\\))|(\\[Audio.*?\\])", "")
+                                  .replaceAll("(?i)(\\(Music.*?\\))|(\\[Music.*?\\])", "")
+                                  .trim();
+            String[] parts = cleaned.split(" - |–|:|\\|", 2);
+            blackhole.consume(parts.length == 2
+                ? new TrackInfo(parts[1].trim(), parts[0].trim())
+                : new TrackInfo(cleaned, ""));
+        }
+    }
+}
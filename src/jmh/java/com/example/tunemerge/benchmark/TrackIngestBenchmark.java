@@ -0,0 +1,96 @@
+package com.example.tunemerge.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.example.tunemerge.TunemergeApplication;
+import com.example.tunemerge.model.Playlist;
+import com.example.tunemerge.model.TrackRecord;
+import com.example.tunemerge.model.User;
+import com.example.tunemerge.repository.PlaylistRepository;
+import com.example.tunemerge.repository.UserRepository;
+import com.example.tunemerge.service.TrackService;
+
+// ingesting a playlist's tracks into an in-memory H2 database through TrackService
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TrackIngestBenchmark {
+
+    @Param({"1000", "10000"})
+    public int tracks;
+
+    private ConfigurableApplicationContext context;
+    private TrackService trackService;
+    private PlaylistRepository playlistRepository;
+    private User user;
+    private List<TrackRecord> records;
+    private Playlist playlist;
+    private int playlistCount;
+
+    @Setup(Level.Trial)
+    public void startApplication() {
+        context = new SpringApplicationBuilder(TunemergeApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(
+                        "spring.main.banner-mode=off",
+                        "spring.devtools.restart.enabled=false",
+                        "spring.datasource.url=jdbc:h2:mem:tunemerge-bench;DB_CLOSE_DELAY=-1",
+                        "logging.level.root=WARN",
+                        "spotify.client.id=bench",
+                        "spotify.client.secret=bench",
+                        "spotify.redirect.uri=http://localhost/callback",
+                        "youtube.client.id=bench",
+                        "youtube.client.secret=bench",
+                        "youtube.redirect.uri=http://localhost/callback",
+                        "app.base-url=http://localhost")
+                .run();
+        trackService = context.getBean(TrackService.class);
+        playlistRepository = context.getBean(PlaylistRepository.class);
+
+        user = new User();
+        user.setSpotifyId("bench-user");
+        user = context.getBean(UserRepository.class).save(user);
+        records = BenchmarkData.trackRecords(tracks);
+    }
+
+    // every invocation ingests into an empty playlist
+    @Setup(Level.Invocation)
+    public void newPlaylist() {
+        playlist = new Playlist();
+        playlist.setName("bench-" + playlistCount);
+        playlist.setSpotifyId("bench-playlist-" + playlistCount++);
+        playlist.setUser(user);
+        playlist = playlistRepository.save(playlist);
+    }
+
+    @Benchmark
+    public int saveTracks() {
+        return trackService.saveTracks(records, playlist);
+    }
+
+    @TearDown(Level.Trial)
+    public void stopApplication() {
+        context.close();
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.tunemerge.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.example.tunemerge.model.TrackPage;
+import com.example.tunemerge.service.SpotifyTrackPageParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// decoding one full Spotify tracks page: streaming parser against the JsonNode tree it replaced
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackPageDecodingBenchmark {
+
+    @Param({"100"})
+    public int pageSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SpotifyTrackPageParser parser;
+    private String page;
+
+    @Setup
+    public void setup() {
+        parser = new SpotifyTrackPageParser(objectMapper);
+        page = BenchmarkData.spotifyTracksPage(pageSize, 0, pageSize * 10);
+    }
+
+    @Benchmark
+    public TrackPage streamingParser() throws IOException {
+        return parser.parse(page);
+    }
+
+    @Benchmark
+    public List<String> treeModelUris() throws IOException {
+        List<String> uris = new ArrayList<>();
+        JsonNode items = objectMapper.readTree(page).get("items");
+        for (JsonNode item : items) {
+            JsonNode track = item.get("track");
+            if (track != null && track.has("uri")) {
+                uris.add(track.get("uri").asText());
+            }
+        }
+        return uris;
+    }
+}
@@ -1,12 +1,21 @@
 package com.example.tunemerge;
 
+import java.util.Map;
+
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class TunemergeApplication {
 
 	public static void main(String[] args) {
-		SpringApplication.run(TunemergeApplication.class, args);
+		SpringApplication application = new SpringApplication(TunemergeApplication.class);
+		// lowest precedence, application.properties can still override these
+		application.setDefaultProperties(Map.of(
+				"management.endpoints.web.exposure.include", "health,info,metrics,prometheus",
+				"management.metrics.distribution.percentiles-histogram.http.server.requests", "true"));
+		application.run(args);
 	}
 }
@@ -1,21 +1,156 @@
 package com.example.tunemerge.config;
 
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.web.client.RestTemplate;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Configuration
 public class AppConfig {
 
+    // keep-alive connection pool for api.spotify.com and accounts.spotify.com, limits apply per route
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager httpConnectionManager(
+            @Value("${http.client.max-connections:100}") int maxConnections,
+            @Value("${http.client.max-connections-per-route:50}") int maxConnectionsPerRoute,
+            @Value("${http.client.connect-timeout:5s}") Duration connectTimeout,
+            @Value("${http.client.read-timeout:20s}") Duration readTimeout,
+            @Value("${http.client.connection-ttl:5m}") Duration connectionTtl,
+            MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnectionsPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeout.toMillis()))
+                        .setSocketTimeout(Timeout.ofMilliseconds(readTimeout.toMillis()))
+                        .setTimeToLive(TimeValue.ofMilliseconds(connectionTtl.toMillis()))
+                        .build())
+                .build();
+        Gauge.builder("tunemerge.http.pool.leased", connectionManager, pool -> pool.getTotalStats().getLeased())
+                .description("Outbound HTTP connections in use")
+                .register(meterRegistry);
+        Gauge.builder("tunemerge.http.pool.pending", connectionManager, pool -> pool.getTotalStats().getPending())
+                .description("Requests waiting for an outbound HTTP connection")
+                .register(meterRegistry);
+        Gauge.builder("tunemerge.http.pool.available", connectionManager, pool -> pool.getTotalStats().getAvailable())
+                .description("Idle outbound HTTP connections kept alive")
+                .register(meterRegistry);
+        Gauge.builder("tunemerge.http.pool.max", connectionManager, pool -> pool.getTotalStats().getMax())
+                .description("Maximum outbound HTTP connections")
+                .register(meterRegistry);
+        return connectionManager;
+    }
+
+    // gzip/deflate responses are decompressed transparently by the client; closing it stops the idle connection evictor
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager httpConnectionManager,
+            @Value("${http.client.pool-acquire-timeout:2s}") Duration poolAcquireTimeout,
+            @Value("${http.client.read-timeout:20s}") Duration readTimeout,
+            @Value("${http.client.idle-timeout:30s}") Duration idleTimeout) {
+        return HttpClients.custom()
+                .setConnectionManager(httpConnectionManager)
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolAcquireTimeout.toMillis()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeout.toMillis()))
+                        .build())
+                .evictExpiredConnections()
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleTimeout.toMillis()))
+                .build();
+    }
+
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(CloseableHttpClient httpClient) {
+        return new RestTemplate(new HttpComponentsClientHttpRequestFactory(httpClient));
+    }
+
+    // same pool without transparent decompression, pass-through endpoints relay gzip bodies as they are
+    @Bean
+    public ClientHttpRequestFactory streamingRequestFactory(PoolingHttpClientConnectionManager httpConnectionManager,
+            @Value("${http.client.pool-acquire-timeout:2s}") Duration poolAcquireTimeout,
+            @Value("${http.client.read-timeout:20s}") Duration readTimeout) {
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(httpConnectionManager)
+                .setConnectionManagerShared(true)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(poolAcquireTimeout.toMillis()))
+                        .setResponseTimeout(Timeout.ofMilliseconds(readTimeout.toMillis()))
+                        .build())
+                .disableContentCompression()
+                .build();
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
     }
 
     @Bean
     public ObjectMapper objectMapper() {
         return new ObjectMapper();
     }
+
+    // worker pool that runs the per-item search and score work of an export
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService exportExecutor(@Value("${export.pool-size:16}") int poolSize) {
+        return Executors.newFixedThreadPool(poolSize, new CustomizableThreadFactory("export-"));
+    }
+
+    // runs whole export jobs, one thread each; submissions beyond the queue are rejected
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService exportJobExecutor(@Value("${export.jobs.max-concurrent:4}") int maxConcurrent,
+            @Value("${export.jobs.queue-capacity:100}") int queueCapacity) {
+        return new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("export-job-"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    // delivers export job events to SSE clients, so a slow client never holds up an export worker
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService exportEventExecutor() {
+        return Executors.newCachedThreadPool(new CustomizableThreadFactory("export-events-"));
+    }
+
+    // concurrent offset-based page fetches for large Spotify playlists
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService spotifyPageExecutor(@Value("${spotify.page-fetch-threads:8}") int threads) {
+        return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("spotify-pages-"));
+    }
+
+    // independent Spotify calls of one request issued side by side, e.g. the dashboard's profile and playlists
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService spotifyRequestExecutor(@Value("${spotify.request-fan-out-threads:8}") int threads) {
+        return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("spotify-fan-out-"));
+    }
+
+    // playlist and track persistence taken off the dashboard's response path
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService playlistSyncExecutor(@Value("${playlist-sync.pool-size:2}") int poolSize) {
+        return Executors.newFixedThreadPool(poolSize, new CustomizableThreadFactory("playlist-sync-"));
+    }
+
+    // background page fetches for YouTube playlists, one short-lived task per open page stream
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService youtubePageExecutor() {
+        return Executors.newCachedThreadPool(new CustomizableThreadFactory("yt-pages-"));
+    }
 }
@@ -0,0 +1,55 @@
+package com.example.tunemerge.config;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.stereotype.Component;
+
+/**
+ * Flyway V6, picked up as a bean. Playlists move from IDENTITY ids to
+ * playlists_seq so a sync inserts its new playlists in JDBC batches. The
+ * sequence starts one allocation block past the highest id stored so far,
+ * the IDENTITY default stays in place but is no longer used.
+ */
+@Component
+public class PlaylistsSequenceMigration implements JavaMigration {
+
+    // allocationSize of Playlist's generator
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("6");
+    }
+
+    @Override
+    public String getDescription() {
+        return "create playlists seq past existing ids";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            long maxId;
+            try (ResultSet result = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM playlists")) {
+                result.next();
+                maxId = result.getLong(1);
+            }
+            statement.execute("CREATE SEQUENCE IF NOT EXISTS playlists_seq START WITH " + (maxId + ALLOCATION_SIZE)
+                + " INCREMENT BY " + ALLOCATION_SIZE);
+        }
+    }
+}
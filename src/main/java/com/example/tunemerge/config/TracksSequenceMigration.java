@@ -0,0 +1,54 @@
+package com.example.tunemerge.config;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.migration.Context;
+import org.flywaydb.core.api.migration.JavaMigration;
+import org.springframework.stereotype.Component;
+
+/**
+ * Flyway V4, picked up as a bean. Tracks stored while tracks.id was an
+ * IDENTITY column have ids tracks_seq, created at 1 by V1, would hand out
+ * again. The sequence is restarted one allocation block past the highest id,
+ * as a literal since H2 and PostgreSQL share no syntax for a computed restart.
+ */
+@Component
+public class TracksSequenceMigration implements JavaMigration {
+
+    // allocationSize of Track's generator, its pooled optimizer hands out the block ending at the value read
+    private static final int ALLOCATION_SIZE = 50;
+
+    @Override
+    public MigrationVersion getVersion() {
+        return MigrationVersion.fromVersion("4");
+    }
+
+    @Override
+    public String getDescription() {
+        return "restart tracks seq past existing ids";
+    }
+
+    @Override
+    public Integer getChecksum() {
+        return null;
+    }
+
+    @Override
+    public boolean canExecuteInTransaction() {
+        return true;
+    }
+
+    @Override
+    public void migrate(Context context) throws Exception {
+        try (Statement statement = context.getConnection().createStatement()) {
+            long maxId;
+            try (ResultSet result = statement.executeQuery("SELECT COALESCE(MAX(id), 0) FROM tracks")) {
+                result.next();
+                maxId = result.getLong(1);
+            }
+            statement.execute("ALTER SEQUENCE tracks_seq RESTART WITH " + (maxId + ALLOCATION_SIZE));
+        }
+    }
+}
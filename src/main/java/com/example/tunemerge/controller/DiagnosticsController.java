@@ -0,0 +1,109 @@
+package com.example.tunemerge.controller;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.example.tunemerge.config.JpaConfig;
+import com.example.tunemerge.service.LocalTrackIndex;
+import com.example.tunemerge.service.MatchCacheService;
+import com.example.tunemerge.service.SpotifyRateLimiter;
+
+import jakarta.persistence.EntityManagerFactory;
+
+@RestController
+@RequestMapping("/api/diagnostics")
+public class DiagnosticsController {
+    private final MatchCacheService matchCacheService;
+    private final PoolingHttpClientConnectionManager httpConnectionManager;
+    private final SpotifyRateLimiter spotifyRateLimiter;
+    private final LocalTrackIndex localTrackIndex;
+    private final Statistics hibernateStatistics;
+
+    public DiagnosticsController(MatchCacheService matchCacheService,
+                                 PoolingHttpClientConnectionManager httpConnectionManager,
+                                 SpotifyRateLimiter spotifyRateLimiter,
+                                 LocalTrackIndex localTrackIndex,
+                                 EntityManagerFactory entityManagerFactory) {
+        this.matchCacheService = matchCacheService;
+        this.httpConnectionManager = httpConnectionManager;
+        this.spotifyRateLimiter = spotifyRateLimiter;
+        this.localTrackIndex = localTrackIndex;
+        this.hibernateStatistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    // hit/miss/eviction counters of the Spotify match cache
+    @GetMapping("/match-cache")
+    public ResponseEntity<Map<String, Long>> matchCacheStats() {
+        return ResponseEntity.ok(matchCacheService.getStats());
+    }
+
+    // leased/pending/available connections of the outbound HTTP pool, in total and per route
+    @GetMapping("/http-pool")
+    public ResponseEntity<Map<String, Object>> httpPoolStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("total", toMap(httpConnectionManager.getTotalStats()));
+
+        Map<String, Object> routes = new LinkedHashMap<>();
+        for (HttpRoute route : httpConnectionManager.getRoutes()) {
+            routes.put(route.getTargetHost().toURI(), toMap(httpConnectionManager.getStats(route)));
+        }
+        stats.put("routes", routes);
+        return ResponseEntity.ok(stats);
+    }
+
+    // current concurrency limit and throttling counters of the Spotify rate limiter
+    @GetMapping("/spotify-limiter")
+    public ResponseEntity<Map<String, Long>> spotifyLimiterStats() {
+        return ResponseEntity.ok(spotifyRateLimiter.getStats());
+    }
+
+    // size and hit/miss counters of the local track index
+    @GetMapping("/local-index")
+    public ResponseEntity<Map<String, Long>> localIndexStats() {
+        return ResponseEntity.ok(localTrackIndex.getStats());
+    }
+
+    // hits, misses and hit ratio of the Hibernate second-level cache regions and the query cache
+    @GetMapping("/entity-cache")
+    public ResponseEntity<Map<String, Object>> entityCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (String region : new String[] {JpaConfig.USERS_REGION, JpaConfig.PLAYLISTS_REGION}) {
+            CacheRegionStatistics regionStatistics = hibernateStatistics.getDomainDataRegionStatistics(region);
+            stats.put(region, cacheStats(regionStatistics.getHitCount(), regionStatistics.getMissCount(),
+                regionStatistics.getPutCount()));
+        }
+        stats.put("queries", cacheStats(hibernateStatistics.getQueryCacheHitCount(),
+            hibernateStatistics.getQueryCacheMissCount(), hibernateStatistics.getQueryCachePutCount()));
+        stats.put("statementsPrepared", hibernateStatistics.getPrepareStatementCount());
+        return ResponseEntity.ok(stats);
+    }
+
+    private Map<String, Object> cacheStats(long hits, long misses, long puts) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("hits", hits);
+        values.put("misses", misses);
+        values.put("puts", puts);
+        values.put("hitRatio", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+        return values;
+    }
+
+    private Map<String, Integer> toMap(PoolStats poolStats) {
+        Map<String, Integer> values = new LinkedHashMap<>();
+        values.put("leased", poolStats.getLeased());
+        values.put("pending", poolStats.getPending());
+        values.put("available", poolStats.getAvailable());
+        values.put("max", poolStats.getMax());
+        return values;
+    }
+}
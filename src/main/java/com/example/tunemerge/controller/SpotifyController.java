@@ -1,47 +1,68 @@
 package com.example.tunemerge.controller;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
 import org.springframework.web.servlet.ModelAndView;
 
-import com.example.tunemerge.model.User;
-import com.example.tunemerge.service.PlaylistService;
+import com.example.tunemerge.service.PlaylistSyncService;
 import com.example.tunemerge.service.SpotifyService;
 import com.example.tunemerge.service.TrackService;
-import com.example.tunemerge.service.UserService;
-import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/api/spotify")
 public class SpotifyController {
-    private final ObjectMapper objectMapper = new ObjectMapper();
     private final SpotifyService spotifyService;
-    private final UserService userService;
-    private final PlaylistService playlistService;
+    private final ExecutorService spotifyRequestExecutor;
+    private final PlaylistSyncService playlistSyncService;
     private final TrackService trackService;
+    private final int relayBufferSize;
     private static final Logger logger = LoggerFactory.getLogger(SpotifyController.class);
 
+    // end-to-end headers of a relayed Spotify response, hop-by-hop ones like Transfer-Encoding stay behind
+    private static final String[] RELAYED_RESPONSE_HEADERS = {
+        HttpHeaders.CONTENT_TYPE, HttpHeaders.CONTENT_ENCODING, HttpHeaders.CONTENT_LENGTH,
+        HttpHeaders.ETAG, HttpHeaders.CACHE_CONTROL, HttpHeaders.LAST_MODIFIED, HttpHeaders.VARY
+    };
+
     @Autowired
-    public SpotifyController(SpotifyService spotifyService, UserService userService, PlaylistService playlistService, TrackService trackService) {
+    public SpotifyController(SpotifyService spotifyService, PlaylistSyncService playlistSyncService, TrackService trackService,
+                             @Qualifier("spotifyRequestExecutor") ExecutorService spotifyRequestExecutor,
+                             @Value("${proxy.buffer-size:8192}") int relayBufferSize) {
         this.spotifyService = spotifyService;
-        this.userService = userService;
-        this.playlistService = playlistService;
+        this.spotifyRequestExecutor = spotifyRequestExecutor;
+        this.playlistSyncService = playlistSyncService;
         this.trackService = trackService;
+        this.relayBufferSize = relayBufferSize;
     }
 
     // sends the user to spotify by getting the authorization url
@@ -70,17 +91,19 @@ public class SpotifyController {
     }
     // this endpoint gets the user's playlists from spotify
     @GetMapping("/me/playlists")
-    public ResponseEntity<String> getUserPlaylists(@RequestParam String spotifyId) {
+    public void getUserPlaylists(@RequestParam String spotifyId, @RequestHeader HttpHeaders headers,
+                                 HttpServletResponse response) throws IOException {
         logger.info("Getting playlists for Spotify ID: {}", spotifyId);
-        return spotifyService.getUserPlaylists(spotifyId);
+        relay(() -> spotifyService.openUserPlaylists(spotifyId, headers), response);
     }
 
     
     // this is called after the user logs in and gets thier profile
     @GetMapping("/me")
-    public ResponseEntity<String> getUserProfile(@RequestParam String spotifyId) {
+    public void getUserProfile(@RequestParam String spotifyId, @RequestHeader HttpHeaders headers,
+                               HttpServletResponse response) throws IOException {
         logger.info("Getting user profile for Spotify ID: {}", spotifyId);
-        return spotifyService.getUserProfile(spotifyId);
+        relay(() -> spotifyService.openUserProfile(spotifyId, headers), response);
     }
 
     // this is the dashboard that the user sees after they log in
@@ -89,15 +112,17 @@ public class SpotifyController {
         logger.info("Accessing dashboard for Spotify ID: {}", spotifyId);
         Map<String, Object> dashboardData = new HashMap<>();
         
+        CompletableFuture<ResponseEntity<String>> profileRequest = null;
         try {
-            ResponseEntity<String> userProfileResponse = spotifyService.getUserProfile(spotifyId);
-            ResponseEntity<String> userPlaylistsResponse = spotifyService.getUserPlaylists(spotifyId);
-            
-            // Store the playlists in the database
-            Optional<User> userOpt = userService.getUserBySpotifyId(spotifyId);
-            if (userOpt.isPresent()) {
-                playlistService.savePlaylistsFromSpotifyResponse(userPlaylistsResponse.getBody(), userOpt.get());
-            }
+            // one token lookup, then both calls in flight at once
+            String accessToken = spotifyService.getAccessTokenForUser(spotifyId);
+            profileRequest = CompletableFuture.supplyAsync(
+                () -> spotifyService.getUserProfile(spotifyId, accessToken), spotifyRequestExecutor);
+            ResponseEntity<String> userPlaylistsResponse = spotifyService.getUserPlaylists(spotifyId, accessToken);
+            ResponseEntity<String> userProfileResponse = profileRequest.join();
+
+            // Store the playlists in the background, re-ingesting tracks only for changed playlists
+            playlistSyncService.syncInBackground(userPlaylistsResponse.getBody(), spotifyId);
             
             dashboardData.put("userProfile", userProfileResponse.getBody());
             dashboardData.put("userPlaylists", userPlaylistsResponse.getBody());
@@ -105,6 +130,9 @@ public class SpotifyController {
             
             return ResponseEntity.ok(dashboardData);
         } catch (Exception e) {
+            if (profileRequest != null) {
+                profileRequest.cancel(true);
+            }
             logger.error("Error fetching dashboard data", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(Collections.singletonMap("error", "Failed to fetch dashboard data"));
@@ -119,23 +147,76 @@ public class SpotifyController {
 
     // this endpoint get the tracks for a playlist with a given playlistId
     @GetMapping("/me/playlists/{playlistId}/tracks")
-    public ResponseEntity<String> getPlaylistTracks(
+    public void getPlaylistTracks(
             @PathVariable("playlistId") String playlistId,
-            @RequestParam String spotifyId) {
+            @RequestParam String spotifyId,
+            @RequestHeader HttpHeaders headers,
+            HttpServletResponse response) throws IOException {
         logger.info("Getting tracks for playlist ID: {} and Spotify ID: {}", playlistId, spotifyId);
-        return spotifyService.getPlaylistTracks(playlistId, spotifyId);
+        relay(() -> spotifyService.openPlaylistTracks(playlistId, spotifyId, headers), response);
     }
 
     @GetMapping("/search")
-    public ResponseEntity<?> searchTracks(
+    public void searchTracks(
         @RequestParam String query,
-        @RequestParam String spotifyId) {
+        @RequestParam String spotifyId,
+        @RequestHeader HttpHeaders headers,
+        HttpServletResponse response) throws IOException {
         try {
-            return spotifyService.searchTracks(query, spotifyId);
+            relay(() -> spotifyService.openSearchTracks(query, spotifyId, headers), response);
         } catch (Exception e) {
             logger.error("Error searching tracks: ", e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body("Error searching tracks: " + e.getMessage());
+            // nothing can be changed once part of the body went out
+            if (!response.isCommitted()) {
+                response.reset();
+                response.setStatus(HttpStatus.INTERNAL_SERVER_ERROR.value());
+                response.setContentType("text/plain;charset=UTF-8");
+                response.getOutputStream().write(("Error searching tracks: " + e.getMessage()).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Pass a Spotify response through unchanged: status, end-to-end headers and
+     * the body, copied as it arrives through one fixed buffer. Compressed bodies
+     * stay compressed, so memory per request does not depend on the payload.
+     * Spotify error responses are relayed with their status as well, failing
+     * to reach Spotify at all is answered with 502.
+     */
+    private void relay(Supplier<ClientHttpResponse> call, HttpServletResponse response) throws IOException {
+        try (ClientHttpResponse upstream = call.get()) {
+            response.setStatus(upstream.getStatusCode().value());
+            copyHeaders(upstream.getHeaders(), response);
+            byte[] buffer = new byte[relayBufferSize];
+            InputStream body = upstream.getBody();
+            OutputStream out = response.getOutputStream();
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+        } catch (RestClientResponseException e) {
+            // error bodies are small and were already read to raise the exception; read as is,
+            // so the relayed Content-Length and Content-Encoding still describe them
+            response.setStatus(e.getStatusCode().value());
+            if (e.getResponseHeaders() != null) {
+                copyHeaders(e.getResponseHeaders(), response);
+            }
+            response.getOutputStream().write(e.getResponseBodyAsByteArray());
+        } catch (ResourceAccessException e) {
+            // raised while opening the call, before any status, header or body byte was written
+            logger.warn("Could not reach Spotify: {}", e.getMessage());
+            response.setStatus(HttpStatus.BAD_GATEWAY.value());
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getOutputStream().write("Spotify could not be reached".getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void copyHeaders(HttpHeaders headers, HttpServletResponse response) {
+        for (String name : RELAYED_RESPONSE_HEADERS) {
+            List<String> values = headers.get(name);
+            if (values != null) {
+                values.forEach(value -> response.addHeader(name, value));
+            }
         }
     }
 }
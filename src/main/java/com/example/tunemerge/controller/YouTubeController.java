@@ -1,36 +1,41 @@
 package com.example.tunemerge.controller;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import com.example.tunemerge.model.SearchResult;
-import com.example.tunemerge.model.TrackInfo;
+import com.example.tunemerge.model.ExportJob;
 import com.example.tunemerge.model.UserToken;
 import com.example.tunemerge.repository.UserTokenRepository;
-import com.example.tunemerge.service.SpotifyService;
+import com.example.tunemerge.service.ExportJobService;
+import com.example.tunemerge.service.OverlapService;
+import com.example.tunemerge.service.PlaylistItemPages;
+import com.example.tunemerge.service.YouTubeClientFactory;
 import com.example.tunemerge.service.YouTubeService;
-import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
-import com.google.api.client.googleapis.auth.oauth2.GoogleClientSecrets;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.googleapis.auth.oauth2.GoogleTokenResponse;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.youtube.model.PlaylistItem;
 
 
 
@@ -40,43 +45,31 @@ public class YouTubeController {
 
     private static final Logger logger = LoggerFactory.getLogger(YouTubeController.class);
 
-    @Value("${youtube.client.id}")
-    private String clientId;
-
-    @Value("${youtube.client.secret}")
-    private String clientSecret;
-
     @Value("${youtube.redirect.uri}")
     private String redirectUri;
 
-    private static final String SCOPE = "https://www.googleapis.com/auth/youtube.readonly";
-
     @Autowired
     private YouTubeService youTubeService;
 
+    @Autowired
+    private YouTubeClientFactory youTubeClientFactory;
+
     @Autowired
     private UserTokenRepository tokenRepository;
 
     @Autowired
-    private SpotifyService spotifyService;
+    private ExportJobService exportJobService;
+
+    @Autowired
+    private OverlapService overlapService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
 
     @GetMapping("/login")
     public ResponseEntity<Map<String, String>> getAuthorizationUrl() {
         try {
-            GoogleClientSecrets.Details web = new GoogleClientSecrets.Details();
-            web.setClientId(clientId);
-            web.setClientSecret(clientSecret);
-            GoogleClientSecrets clientSecrets = new GoogleClientSecrets().setWeb(web);
-
-            GoogleAuthorizationCodeFlow flow = new GoogleAuthorizationCodeFlow.Builder(
-                    new NetHttpTransport(),
-                    GsonFactory.getDefaultInstance(),
-                    clientSecrets,
-                    Collections.singleton(SCOPE))
-                    .setAccessType("offline")
-                    .build();
-
-            String authUrl = flow.newAuthorizationUrl()
+            String authUrl = youTubeClientFactory.getAuthorizationFlow().newAuthorizationUrl()
                     .setRedirectUri(redirectUri)
                     .build();
 
@@ -94,32 +87,25 @@ public class YouTubeController {
     @GetMapping("/callback")
     public ResponseEntity<String> handleCallback(@RequestParam("code") String code) {
         try {
-            GoogleClientSecrets.Details web = new GoogleClientSecrets.Details();
-            web.setClientId(clientId);
-            web.setClientSecret(clientSecret);
-            GoogleClientSecrets clientSecrets = new GoogleClientSecrets().setWeb(web);
-
-            GoogleAuthorizationCodeFlow flow = new GoogleAuthorizationCodeFlow.Builder(
-                    new NetHttpTransport(),
-                    GsonFactory.getDefaultInstance(),
-                    clientSecrets,
-                    Collections.singleton(SCOPE))
-                    .setAccessType("offline")
-                    .build();
-
-            GoogleTokenResponse tokenResponse = flow.newTokenRequest(code)
+            GoogleTokenResponse tokenResponse = youTubeClientFactory.getAuthorizationFlow().newTokenRequest(code)
                     .setRedirectUri(redirectUri)
                     .execute();
 
-            // Create and save token
-            UserToken userToken = new UserToken();
+            // Create or update the stored token
+            UserToken userToken = tokenRepository.findByProvider(YouTubeClientFactory.PROVIDER);
+            if (userToken == null) {
+                userToken = new UserToken();
+                userToken.setProvider(YouTubeClientFactory.PROVIDER);
+            }
             userToken.setAccessToken(tokenResponse.getAccessToken());
-            userToken.setRefreshToken(tokenResponse.getRefreshToken());
-            userToken.setProvider("YOUTUBE");
+            if (tokenResponse.getRefreshToken() != null) {
+                userToken.setRefreshToken(tokenResponse.getRefreshToken());
+            }
             userToken.setCreatedAt(LocalDateTime.now());
             userToken.setExpiresAt(LocalDateTime.now().plusSeconds(tokenResponse.getExpiresInSeconds()));
             
-            tokenRepository.save(userToken);
+            userToken = tokenRepository.save(userToken);
+            youTubeClientFactory.updateToken(userToken);
 
             // Redirect to YouTube dashboard
             return ResponseEntity.status(HttpStatus.FOUND)
@@ -148,65 +134,100 @@ public class YouTubeController {
 
     @GetMapping("/playlists/{playlistId}/tracks")
     public ResponseEntity<?> getPlaylistTracks(@PathVariable String playlistId) {
+        PlaylistItemPages pages = null;
         try {
-            var tracks = youTubeService.getPlaylistTracks(playlistId);
-            return ResponseEntity.ok(tracks);
+            pages = youTubeService.getPlaylistTrackPages(playlistId);
+            // wait for the first page so upstream failures still get a proper status
+            pages.hasNext();
         } catch (IllegalStateException e) {
+            if (pages != null) {
+                pages.close();
+            }
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
                 .body("Authentication required: " + e.getMessage());
-        } catch (IOException e) {
+        } catch (UncheckedIOException e) {
+            pages.close();
             logger.error("Error fetching YouTube playlist tracks: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                 .body("Error fetching tracks: " + e.getMessage());
         }
-    }
 
-    @GetMapping("/export-to-spotify")
-    public ResponseEntity<?> exportToSpotify(
-            @RequestParam String playlistId,
-            @RequestParam String spotifyId) {
-        try {
-            logger.info("Starting export of YouTube playlist {} to Spotify", playlistId);
-            
-            // Get YouTube playlist tracks
-            var playlistItems = youTubeService.getPlaylistTracks(playlistId);
-            List<SearchResult> matchedTracks = new ArrayList<>();
-            List<String> unmatchedTracks = new ArrayList<>();
-
-            // Process each track
-            for (var item : playlistItems.getItems()) {
-                String videoTitle = item.getSnippet().getTitle();
-                TrackInfo trackInfo = extractTrackInfo(videoTitle);
-                
-                SearchResult match = spotifyService.findBestMatch(
-                    trackInfo.getTitle(),
-                    trackInfo.getArtist(),
-                    spotifyId
-                );
-                
-                if (match != null && match.getSimilarity() > 0.6) { // Threshold for good matches
-                    matchedTracks.add(match);
-                } else {
-                    unmatchedTracks.add(videoTitle);
+        // write {"items": [...]} page by page instead of collecting the whole playlist
+        PlaylistItemPages trackPages = pages;
+        StreamingResponseBody body = out -> {
+            try (trackPages; JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                generator.writeStartObject();
+                generator.writeArrayFieldStart("items");
+                while (trackPages.hasNext()) {
+                    for (PlaylistItem item : trackPages.next()) {
+                        objectMapper.writeValue(generator, item);
+                    }
                 }
+                generator.writeEndArray();
+                generator.writeEndObject();
+            } catch (UncheckedIOException e) {
+                logger.error("Error streaming YouTube playlist tracks: ", e);
+                throw e.getCause();
             }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
 
-            Map<String, Object> result = new HashMap<>();
-            result.put("matched", matchedTracks);
-            result.put("unmatched", unmatchedTracks);
-            
-            logger.info("Export completed. Matched: {}, Unmatched: {}", 
-                matchedTracks.size(), unmatchedTracks.size());
-                
-            return ResponseEntity.ok(result);
-            
-        } catch (Exception e) {
-            logger.error("Error exporting playlist to Spotify: ", e);
+    /**
+     * Report which items of a YouTube playlist are already in the user's stored Spotify playlists
+     */
+    @GetMapping("/playlists/{playlistId}/overlap")
+    public ResponseEntity<?> getPlaylistOverlap(@PathVariable String playlistId, @RequestParam String spotifyId) {
+        try {
+            return ResponseEntity.ok(overlapService.report(playlistId, spotifyId));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                .body("Authentication required: " + e.getMessage());
+        } catch (UncheckedIOException e) {
+            logger.error("Error comparing YouTube playlist with Spotify library: ", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                .body("Error exporting playlist: " + e.getMessage());
+                .body("Error fetching tracks: " + e.getMessage());
         }
     }
 
+    /**
+     * Start exporting a YouTube playlist to a new Spotify playlist. Returns at once with the job id,
+     * progress is available from /export-jobs/{jobId} and /export-jobs/{jobId}/events
+     */
+    @PostMapping("/export-jobs")
+    public ResponseEntity<?> startExportJob(
+            @RequestParam String playlistId,
+            @RequestParam String spotifyId,
+            @RequestParam(required = false) String playlistName) {
+        try {
+            ExportJob job = exportJobService.submit(playlistId, spotifyId, playlistName);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("jobId", job.getId());
+            response.put("status", job.getStatus());
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header("Location", "/api/youtube/export-jobs/" + job.getId())
+                .body(response);
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .body("Too many exports in progress, try again later");
+        }
+    }
+
+    @GetMapping("/export-jobs/{jobId}")
+    public ResponseEntity<?> getExportJob(@PathVariable String jobId) {
+        return exportJobService.getStatus(jobId)
+            .<ResponseEntity<?>>map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(path = "/export-jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamExportJob(@PathVariable String jobId) {
+        return exportJobService.subscribe(jobId)
+            .map(ResponseEntity::ok)
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/search")
     public ResponseEntity<?> searchVideos(
         @RequestParam String query) {
@@ -218,26 +239,4 @@ public class YouTubeController {
                 .body("Error searching videos: " + e.getMessage());
         }
     }
-
-    private TrackInfo extractTrackInfo(String videoTitle) {
-        // Remove common YouTube music video suffixes
-        videoTitle = videoTitle.replaceAll("(?i)(\\(Official.*?\\))|(\\[Official.*?\\])", "")
-                              .replaceAll("(?i)(\\(Lyric.*?\\))|(\\[Lyric.*?\\])", "")
-                              .replaceAll("(?i)(\\(Audio.*?\\))|(\\[Audio.*?\\])", "")
-                              .replaceAll("(?i)(\\(Music.*?\\))|(\\[Music.*?\\])", "")
-                              .trim();
-
-        // Try to split by common separators
-        String[] parts = videoTitle.split(" - |–|:|\\|", 2);
-        
-        if (parts.length == 2) {
-            return new TrackInfo(
-                parts[1].trim(), // title
-                parts[0].trim()  // artist
-            );
-        }
-        
-        // If no clear separation, return the whole title as the track name
-        return new TrackInfo(videoTitle.trim(), "");
-    }
 }
\ No newline at end of file
@@ -0,0 +1,58 @@
+package com.example.tunemerge.model;
+
+import java.time.LocalDateTime;
+
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+@Data
+@Entity
+@Table(name = "export_jobs")
+public class ExportJob {
+
+    public enum Status { QUEUED, RUNNING, COMPLETED, FAILED }
+
+    @Id
+    @Column(length = 36)
+    private String id;            // random UUID handed to the client
+
+    @Column(nullable = false)
+    private String youtubePlaylistId;
+
+    @Column(nullable = false)
+    private String spotifyId;
+
+    private String playlistName;       // Spotify playlist to create, defaults to the YouTube title
+    private String spotifyPlaylistId;  // set once the first chunk of matches was written
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    private int total;            // items queued for matching so far
+    private int processed;        // items with a final match or no-match
+    private int matchedCount;
+    private int unmatchedCount;
+    private int failedCount;      // lookups that errored, e.g. still throttled after retries
+
+    @JdbcTypeCode(SqlTypes.LONG32VARCHAR)
+    private String resultJson;    // serialized ExportResult once COMPLETED
+
+    @Column(length = 1024)
+    private String error;         // failure message once FAILED
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    private LocalDateTime finishedAt;
+
+    private LocalDateTime heartbeatAt;  // renewed while the job runs, a stale one means its instance is gone
+}
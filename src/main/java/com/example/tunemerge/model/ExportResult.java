@@ -0,0 +1,14 @@
+package com.example.tunemerge.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class ExportResult {
+    private List<SearchResult> matched = new ArrayList<>();   // Spotify tracks that passed the threshold, in playlist order
+    private List<String> unmatched = new ArrayList<>();       // YouTube titles with no good match, in playlist order
+    private List<String> failed = new ArrayList<>();          // YouTube titles whose Spotify lookup failed, in playlist order
+    private String spotifyPlaylistId;                         // playlist the matches were written to, if any
+}
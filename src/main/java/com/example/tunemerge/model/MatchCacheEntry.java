@@ -0,0 +1,27 @@
+package com.example.tunemerge.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+@Data
+@Entity
+@Table(name = "match_cache")
+public class MatchCacheEntry {
+
+    @Id
+    @Column(length = 1024)
+    private String cacheKey;      // normalized artist + title
+
+    private String spotifyTrackId; // null for a cached "no match"
+    private String name;
+    private String artist;
+    private double similarity;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+}
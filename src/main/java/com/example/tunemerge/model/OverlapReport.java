@@ -0,0 +1,26 @@
+package com.example.tunemerge.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+public class OverlapReport {
+    private String youtubePlaylistId;
+    private int playlistItems;                                // YouTube items compared
+    private int libraryTracks;                                // distinct Spotify tracks stored for the user
+    private long candidatePairs;                              // pairs scored after blocking, out of playlistItems * libraryTracks
+    private List<Overlap> inLibrary = new ArrayList<>();      // items already in the Spotify library, in playlist order
+    private List<String> notInLibrary = new ArrayList<>();    // YouTube titles with no stored match, in playlist order
+
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Overlap {
+        private String videoTitle;
+        private SearchResult track;
+    }
+}
@@ -2,6 +2,12 @@ package com.example.tunemerge.model;
 
 import java.util.Set;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.example.tunemerge.config.JpaConfig;
+
+import jakarta.persistence.Cacheable;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
@@ -12,16 +18,22 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToMany;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.Data;
 
 @Data
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = JpaConfig.PLAYLISTS_REGION)
 @Table(name = "playlists")
 public class Playlist {
 
+    // pooled sequence like Track's, so a sync's new playlists are inserted in JDBC batches;
+    // Flyway V6 creates playlists_seq past the ids handed out under IDENTITY
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "playlists_seq")
+    @SequenceGenerator(name = "playlists_seq", sequenceName = "playlists_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -30,6 +42,9 @@ public class Playlist {
     @Column(nullable = false)
     private String spotifyId;
 
+    // Spotify snapshot_id of the tracks we last ingested, null until the first sync
+    private String snapshotId;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
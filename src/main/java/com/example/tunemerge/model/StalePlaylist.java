@@ -0,0 +1,11 @@
+package com.example.tunemerge.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class StalePlaylist {
+    private Playlist playlist;  // stored playlist whose tracks are out of date
+    private String snapshotId;  // Spotify snapshot_id to record once its tracks are ingested
+}
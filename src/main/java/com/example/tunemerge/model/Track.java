@@ -8,6 +8,7 @@ import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
 import jakarta.persistence.Table;
 import lombok.Data;
 
@@ -16,8 +17,11 @@ import lombok.Data;
 @Table(name = "tracks")
 public class Track {
 
+    // pooled sequence so inserts can be JDBC batched, IDENTITY forces one round trip per row;
+    // Flyway V1 creates tracks_seq and V4 restarts it past ids of rows stored under IDENTITY
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tracks_seq")
+    @SequenceGenerator(name = "tracks_seq", sequenceName = "tracks_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false)
@@ -0,0 +1,13 @@
+package com.example.tunemerge.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+
+@Data
+public class TrackPage {
+    private List<TrackRecord> items = new ArrayList<>();
+    private int total;    // total number of tracks in the playlist
+    private String next;  // URL of the next page, null on the last page
+}
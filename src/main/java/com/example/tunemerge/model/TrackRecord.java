@@ -0,0 +1,17 @@
+package com.example.tunemerge.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TrackRecord {
+    private String spotifyId;  // Spotify track ID
+    private String uri;        // spotify:track:... URI
+    private String name;       // Track name
+    private String artist;     // First artist name, null if missing
+    private String album;      // Album name, null if missing
+    private long durationMs;   // Track length in milliseconds
+}
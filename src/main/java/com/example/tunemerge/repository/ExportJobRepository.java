@@ -0,0 +1,30 @@
+package com.example.tunemerge.repository;
+
+import com.example.tunemerge.model.ExportJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+
+@Repository
+public interface ExportJobRepository extends JpaRepository<ExportJob, String> {
+
+    @Transactional
+    @Modifying
+    @Query("update ExportJob j set j.status = :status, j.error = :error "
+            + "where j.status in :from and (j.heartbeatAt is null or j.heartbeatAt < :before)")
+    int updateStatusWhereStatusInAndHeartbeatBefore(@Param("from") Collection<ExportJob.Status> from,
+                                                    @Param("before") LocalDateTime before,
+                                                    @Param("status") ExportJob.Status status,
+                                                    @Param("error") String error);
+
+    @Transactional
+    @Modifying
+    @Query("update ExportJob j set j.heartbeatAt = :now where j.id in :ids")
+    int updateHeartbeat(@Param("ids") Collection<String> ids, @Param("now") LocalDateTime now);
+}
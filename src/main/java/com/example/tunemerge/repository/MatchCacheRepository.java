@@ -0,0 +1,9 @@
+package com.example.tunemerge.repository;
+
+import com.example.tunemerge.model.MatchCacheEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface MatchCacheRepository extends JpaRepository<MatchCacheEntry, String> {
+}
@@ -2,15 +2,33 @@ package com.example.tunemerge.repository;
 
 import com.example.tunemerge.model.Playlist;
 import com.example.tunemerge.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface PlaylistRepository extends JpaRepository<Playlist, Long> {
     List<Playlist> findByUser(User user);
+    // query cache, the playlists themselves then come from the second-level cache
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Playlist> findBySpotifyId(String spotifyId);
+
     boolean existsBySpotifyId(String spotifyId);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
+    List<Playlist> findBySpotifyIdIn(Collection<String> spotifyIds);
+
+    // bulk JPQL updates evict the whole playlists region and invalidate cached queries on the table
+    @Modifying
+    @Query("update Playlist p set p.snapshotId = :snapshotId where p.id = :id")
+    int updateSnapshotId(@Param("id") Long id, @Param("snapshotId") String snapshotId);
 }
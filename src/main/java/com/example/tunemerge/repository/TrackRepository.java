@@ -2,15 +2,40 @@ package com.example.tunemerge.repository;
 
 import com.example.tunemerge.model.Playlist;
 import com.example.tunemerge.model.Track;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 @Repository
 public interface TrackRepository extends JpaRepository<Track, Long> {
     List<Track> findByPlaylist(Playlist playlist);
     Optional<Track> findBySpotifyId(String spotifyId);
     boolean existsBySpotifyIdAndPlaylist(String spotifyId, Playlist playlist);
+
+    @Query("select t.spotifyId from Track t where t.playlist = :playlist")
+    Set<String> findSpotifyIdsByPlaylist(@Param("playlist") Playlist playlist);
+
+    // id, spotifyId, name and artist of the tracks after afterId, for paging through the whole table by key
+    @Query("select t.id, t.spotifyId, t.name, t.artist from Track t where t.id > :afterId order by t.id")
+    List<Object[]> findIndexRowsAfter(@Param("afterId") long afterId, Pageable pageable);
+
+    // spotifyId, name and artist of every track in the user's stored playlists
+    @Query("select t.spotifyId, t.name, t.artist from Track t where t.playlist.user.spotifyId = :userSpotifyId")
+    List<Object[]> findLibraryRowsByUser(@Param("userSpotifyId") String userSpotifyId);
+
+    // distinct Spotify IDs in the user's stored playlists
+    @Query("select distinct t.spotifyId from Track t where t.playlist.user.spotifyId = :userSpotifyId")
+    Set<String> findSpotifyIdsByUser(@Param("userSpotifyId") String userSpotifyId);
+
+    @Modifying
+    @Query("delete from Track t where t.playlist = :playlist and t.spotifyId in :spotifyIds")
+    int deleteByPlaylistAndSpotifyIdIn(@Param("playlist") Playlist playlist, @Param("spotifyIds") Collection<String> spotifyIds);
 }
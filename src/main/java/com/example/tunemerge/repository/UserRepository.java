@@ -1,14 +1,20 @@
 package com.example.tunemerge.repository;
 
 import com.example.tunemerge.model.User;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    // query cache, the User itself then comes from the second-level cache
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<User> findBySpotifyId(String spotifyId);
+
     Optional<User> findByEmail(String email);
     boolean existsBySpotifyId(String spotifyId);
 }
@@ -0,0 +1,74 @@
+package com.example.tunemerge.service;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Upstream read responses kept with their ETag, so the next read of the same
+ * resource can be sent as a conditional request and a 304 answered from here.
+ * Keys must identify the user as well as the resource.
+ */
+@Component
+public class ConditionalResponseCache {
+
+    public static final class Entry<T> {
+        private final String etag;
+        private final T body;
+
+        private Entry(String etag, T body) {
+            this.etag = etag;
+            this.body = body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public T getBody() {
+            return body;
+        }
+    }
+
+    private final BoundedCache<String, Entry<?>> entries;
+    private final long ttlMillis;
+    private final MeterRegistry meterRegistry;
+
+    public ConditionalResponseCache(@Value("${upstream.etag-cache.max-size:2000}") int maxSize,
+                                    @Value("${upstream.etag-cache.ttl:1h}") Duration ttl,
+                                    MeterRegistry meterRegistry) {
+        this.entries = new BoundedCache<>(maxSize);
+        this.ttlMillis = ttl.toMillis();
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("tunemerge.etag_cache.size", entries, BoundedCache::size).register(meterRegistry);
+        FunctionCounter.builder("tunemerge.etag_cache.evictions", entries, BoundedCache::getEvictions).register(meterRegistry);
+    }
+
+    /** @return the stored response, or null; the caller knows the body type it stored under the key */
+    @SuppressWarnings("unchecked")
+    public <T> Entry<T> get(String key) {
+        return (Entry<T>) entries.get(key);
+    }
+
+    /** Responses without an ETag cannot be revalidated and are not stored */
+    public <T> void put(String key, String etag, T body) {
+        if (etag != null && body != null) {
+            entries.put(key, new Entry<>(etag, body), ttlMillis);
+        }
+    }
+
+    /** Count a 304 answered from the cache */
+    public void recordNotModified(String service) {
+        Counter.builder("tunemerge.etag_cache.not_modified")
+            .description("Upstream reads answered 304 and served from the ETag cache")
+            .tag("service", service)
+            .register(meterRegistry)
+            .increment();
+    }
+}
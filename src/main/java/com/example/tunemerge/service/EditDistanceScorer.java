@@ -0,0 +1,71 @@
+package com.example.tunemerge.service;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Case-insensitive Levenshtein similarity of the track titles. Uses two reusable
+ * rows per thread instead of a full matrix and gives up as soon as the distance
+ * can no longer stay within what minScore allows.
+ */
+@Component("editDistance")
+public class EditDistanceScorer implements MatchScorer {
+
+    private static final ThreadLocal<int[][]> ROWS = ThreadLocal.withInitial(() -> new int[2][64]);
+
+    @Override
+    public double score(String queryTitle, String queryArtist, String candidateTitle, String candidateArtist, double minScore) {
+        return similarity(queryTitle, candidateTitle, minScore);
+    }
+
+    public double similarity(String s1, String s2, double minScore) {
+        int maxLength = Math.max(s1.length(), s2.length());
+        if (maxLength == 0) return 1.0;
+
+        int maxDistance = (int) Math.floor((1.0 - minScore) * maxLength + 1e-9);
+        if (Math.abs(s1.length() - s2.length()) > maxDistance) {
+            return 0.0;
+        }
+
+        int distance = boundedDistance(s1, s2, maxDistance);
+        if (distance > maxDistance) {
+            return 0.0;
+        }
+        return 1.0 - ((double) distance / maxLength);
+    }
+
+    // Levenshtein distance, or maxDistance + 1 once every cell of a row is past maxDistance
+    private int boundedDistance(String s1, String s2, int maxDistance) {
+        int m = s2.length();
+        int[][] rows = ROWS.get();
+        if (rows[0].length < m + 1) {
+            rows[0] = new int[m + 1];
+            rows[1] = new int[m + 1];
+        }
+        int[] previous = rows[0];
+        int[] current = rows[1];
+
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= s1.length(); i++) {
+            char c1 = Character.toLowerCase(s1.charAt(i - 1));
+            current[0] = i;
+            int rowMin = i;
+            for (int j = 1; j <= m; j++) {
+                int cost = c1 == Character.toLowerCase(s2.charAt(j - 1)) ? 0 : 1;
+                int value = Math.min(previous[j - 1] + cost, Math.min(previous[j] + 1, current[j - 1] + 1));
+                current[j] = value;
+                if (value < rowMin) {
+                    rowMin = value;
+                }
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[m];
+    }
+}
@@ -0,0 +1,429 @@
+package com.example.tunemerge.service;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.example.tunemerge.model.ExportJob;
+import com.example.tunemerge.model.ExportResult;
+import com.example.tunemerge.model.SearchResult;
+import com.example.tunemerge.repository.ExportJobRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Runs YouTube to Spotify exports in the background. A job is persisted when
+ * it is submitted and again when it finishes, so its result can be polled
+ * after the client disconnects. While a job runs, subscribers get its
+ * progress and per-item results as server-sent events.
+ */
+@Service
+public class ExportJobService {
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobService.class);
+
+    private static final List<ExportJob.Status> UNFINISHED = List.of(ExportJob.Status.QUEUED, ExportJob.Status.RUNNING);
+    private static final int MAX_ERROR_LENGTH = 1024;
+    private static final String DEFAULT_PLAYLIST_NAME = "Imported from YouTube";
+
+    private final ExportJobRepository exportJobRepository;
+    private final ExportService exportService;
+    private final YouTubeService youTubeService;
+    private final ExecutorService exportJobExecutor;
+    private final ExecutorService exportEventExecutor;
+    private final ObjectMapper objectMapper;
+    private final Duration eventStreamTimeout;
+    private final Duration lease;
+    private final MeterRegistry meterRegistry;
+    private final ConcurrentMap<String, RunningJob> running = new ConcurrentHashMap<>();
+
+    public ExportJobService(ExportJobRepository exportJobRepository,
+                            ExportService exportService,
+                            YouTubeService youTubeService,
+                            @Qualifier("exportJobExecutor") ExecutorService exportJobExecutor,
+                            @Qualifier("exportEventExecutor") ExecutorService exportEventExecutor,
+                            ObjectMapper objectMapper,
+                            @Value("${export.jobs.event-stream-timeout:30m}") Duration eventStreamTimeout,
+                            @Value("${export.jobs.lease:2m}") Duration lease,
+                            MeterRegistry meterRegistry) {
+        this.exportJobRepository = exportJobRepository;
+        this.exportService = exportService;
+        this.youTubeService = youTubeService;
+        this.exportJobExecutor = exportJobExecutor;
+        this.exportEventExecutor = exportEventExecutor;
+        this.objectMapper = objectMapper;
+        this.eventStreamTimeout = eventStreamTimeout;
+        this.lease = lease;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("tunemerge.export.jobs.running", running, Map::size)
+            .description("Export jobs queued or running on this instance")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Renew the lease of the jobs on this instance, then fail unfinished jobs
+     * whose lease ran out. Those belonged to an instance that stopped or
+     * crashed, jobs of other live instances keep their fresh heartbeat.
+     */
+    @Scheduled(fixedDelayString = "${export.jobs.heartbeat-interval:30000}")
+    public void renewLeases() {
+        LocalDateTime now = LocalDateTime.now();
+        if (!running.isEmpty()) {
+            exportJobRepository.updateHeartbeat(List.copyOf(running.keySet()), now);
+        }
+        int interrupted = exportJobRepository.updateStatusWhereStatusInAndHeartbeatBefore(
+                UNFINISHED, now.minus(lease), ExportJob.Status.FAILED, "Interrupted, the server running it went away");
+        if (interrupted > 0) {
+            logger.warn("Marked {} interrupted export jobs as failed", interrupted);
+        }
+    }
+
+    /**
+     * Persist a new job and queue it for execution
+     * @throws RejectedExecutionException when the job queue is full
+     */
+    public ExportJob submit(String youtubePlaylistId, String spotifyId, String playlistName) {
+        ExportJob job = new ExportJob();
+        job.setId(UUID.randomUUID().toString());
+        job.setYoutubePlaylistId(youtubePlaylistId);
+        job.setSpotifyId(spotifyId);
+        job.setPlaylistName(playlistName);
+        job.setStatus(ExportJob.Status.QUEUED);
+        job.setCreatedAt(LocalDateTime.now());
+        job.setHeartbeatAt(job.getCreatedAt());
+        exportJobRepository.save(job);
+
+        RunningJob runningJob = new RunningJob(job);
+        running.put(job.getId(), runningJob);
+        try {
+            exportJobExecutor.execute(() -> run(runningJob));
+        } catch (RejectedExecutionException e) {
+            running.remove(job.getId());
+            exportJobRepository.deleteById(job.getId());
+            throw e;
+        }
+        logger.info("Queued export job {} for YouTube playlist {}", job.getId(), youtubePlaylistId);
+        return job;
+    }
+
+    /**
+     * @return status and counters of the job, plus the full result once it completed
+     */
+    public Optional<Map<String, Object>> getStatus(String jobId) {
+        RunningJob runningJob = running.get(jobId);
+        if (runningJob != null) {
+            return Optional.of(runningJob.describe());
+        }
+        return exportJobRepository.findById(jobId).map(job -> describe(job, true));
+    }
+
+    /**
+     * Open an event stream for the job. Running jobs send "status", "item" and a
+     * final "done" event, finished jobs send "done" right away.
+     * @return the emitter, or empty when there is no such job
+     */
+    public Optional<SseEmitter> subscribe(String jobId) {
+        SseEmitter emitter = new SseEmitter(eventStreamTimeout.toMillis());
+        RunningJob runningJob = running.get(jobId);
+        if (runningJob != null && runningJob.register(emitter)) {
+            return Optional.of(emitter);
+        }
+
+        Optional<ExportJob> job = exportJobRepository.findById(jobId);
+        if (job.isEmpty()) {
+            return Optional.empty();
+        }
+        try {
+            emitter.send(SseEmitter.event().name("done").data(describe(job.get(), false)));
+            emitter.complete();
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+        }
+        return Optional.of(emitter);
+    }
+
+    private void run(RunningJob runningJob) {
+        ExportJob job = runningJob.job;
+        long start = System.nanoTime();
+        try {
+            job.setStatus(ExportJob.Status.RUNNING);
+            // the save writes the whole row, an older heartbeat would undo the last renewal
+            job.setHeartbeatAt(LocalDateTime.now());
+            exportJobRepository.save(job);
+            runningJob.broadcast("status", runningJob.describe());
+
+            if (job.getPlaylistName() == null) {
+                job.setPlaylistName(youTubePlaylistTitle(job.getYoutubePlaylistId()));
+            }
+
+            try (PlaylistItemPages pages = youTubeService.getPlaylistTrackPages(job.getYoutubePlaylistId())) {
+                ExportResult result = exportService.exportToNewPlaylist(
+                    pages, job.getSpotifyId(), job.getPlaylistName(), runningJob);
+                job.setSpotifyPlaylistId(result.getSpotifyPlaylistId());
+                job.setResultJson(objectMapper.writeValueAsString(result));
+                job.setMatchedCount(result.getMatched().size());
+                job.setUnmatchedCount(result.getUnmatched().size());
+                job.setFailedCount(result.getFailed().size());
+                job.setStatus(ExportJob.Status.COMPLETED);
+            }
+            logger.info("Export job {} completed. Matched: {}, Unmatched: {}, Failed: {}",
+                job.getId(), job.getMatchedCount(), job.getUnmatchedCount(), job.getFailedCount());
+        } catch (JsonProcessingException | RuntimeException e) {
+            logger.error("Export job {} failed: ", job.getId(), e);
+            job.setStatus(ExportJob.Status.FAILED);
+            job.setError(truncate(e.getMessage()));
+            job.setMatchedCount(runningJob.matched.get());
+            job.setFailedCount(runningJob.failed.get());
+            job.setUnmatchedCount(runningJob.processed.get() - runningJob.matched.get() - runningJob.failed.get());
+        }
+
+        job.setTotal(runningJob.queued.get());
+        job.setProcessed(runningJob.processed.get());
+        job.setFinishedAt(LocalDateTime.now());
+        recordMetrics(job, System.nanoTime() - start);
+        try {
+            exportJobRepository.save(job);
+        } catch (RuntimeException e) {
+            logger.error("Error saving export job {}: {}", job.getId(), e.getMessage());
+        }
+        // removed only after the save so a poll always sees either the live or the persisted job
+        running.remove(job.getId());
+        runningJob.finish(describe(job, false));
+    }
+
+    private void recordMetrics(ExportJob job, long elapsedNanos) {
+        Timer.builder("tunemerge.export.duration")
+            .description("Wall time of export jobs")
+            .tag("status", job.getStatus().name())
+            .publishPercentileHistogram()
+            .register(meterRegistry)
+            .record(elapsedNanos, TimeUnit.NANOSECONDS);
+        if (job.getProcessed() > 0 && elapsedNanos > 0) {
+            DistributionSummary.builder("tunemerge.export.throughput")
+                .description("Items matched per second by export jobs")
+                .baseUnit("items/s")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(job.getProcessed() / (elapsedNanos / 1e9));
+        }
+    }
+
+    private String youTubePlaylistTitle(String youtubePlaylistId) {
+        try {
+            return youTubeService.getPlaylistById(youtubePlaylistId).getSnippet().getTitle();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not read the title of YouTube playlist {}: {}", youtubePlaylistId, e.getMessage());
+            return DEFAULT_PLAYLIST_NAME;
+        }
+    }
+
+    private Map<String, Object> describe(ExportJob job, boolean includeResult) {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("jobId", job.getId());
+        view.put("status", job.getStatus());
+        view.put("youtubePlaylistId", job.getYoutubePlaylistId());
+        view.put("playlistName", job.getPlaylistName());
+        view.put("spotifyPlaylistId", job.getSpotifyPlaylistId());
+        view.put("total", job.getTotal());
+        view.put("processed", job.getProcessed());
+        view.put("matched", job.getMatchedCount());
+        view.put("unmatched", job.getUnmatchedCount());
+        view.put("failed", job.getFailedCount());
+        view.put("createdAt", String.valueOf(job.getCreatedAt()));
+        if (job.getFinishedAt() != null) {
+            view.put("finishedAt", job.getFinishedAt().toString());
+        }
+        if (job.getError() != null) {
+            view.put("error", job.getError());
+        }
+        if (includeResult && job.getResultJson() != null) {
+            try {
+                view.put("result", objectMapper.readTree(job.getResultJson()));
+            } catch (JsonProcessingException e) {
+                logger.error("Stored result of export job {} is unreadable: {}", job.getId(), e.getMessage());
+            }
+        }
+        return view;
+    }
+
+    private static String truncate(String message) {
+        if (message == null || message.length() <= MAX_ERROR_LENGTH) {
+            return message;
+        }
+        return message.substring(0, MAX_ERROR_LENGTH);
+    }
+
+    /**
+     * Live state of a job on this instance. Counters are updated from the
+     * export worker threads. Events are queued and sent in order by one drain
+     * task at a time on the event executor, so a slow or stalled client only
+     * delays its own stream, never the export.
+     */
+    private class RunningJob implements ExportService.MatchListener {
+        private final ExportJob job;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger matched = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+        private final ConcurrentLinkedQueue<Event> events = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private boolean finished;
+
+        RunningJob(ExportJob job) {
+            this.job = job;
+        }
+
+        @Override
+        public void onItemQueued(int index, String videoTitle) {
+            queued.incrementAndGet();
+        }
+
+        @Override
+        public void onItemMatched(int index, String videoTitle, SearchResult match) {
+            if (match != null) {
+                matched.incrementAndGet();
+            }
+            itemDone(index, videoTitle, match, false);
+        }
+
+        @Override
+        public void onItemFailed(int index, String videoTitle, Throwable error) {
+            failed.incrementAndGet();
+            itemDone(index, videoTitle, null, true);
+        }
+
+        private void itemDone(int index, String videoTitle, SearchResult match, boolean lookupFailed) {
+            Map<String, Object> event = new LinkedHashMap<>();
+            event.put("index", index);
+            event.put("title", videoTitle);
+            event.put("match", match);
+            event.put("failed", lookupFailed);
+            event.put("processed", processed.incrementAndGet());
+            event.put("total", queued.get());
+            event.put("matched", matched.get());
+            broadcast("item", event);
+        }
+
+        // the lock only orders registration against finish, no send happens under it
+        synchronized boolean register(SseEmitter emitter) {
+            if (finished) {
+                return false;
+            }
+            emitters.add(emitter);
+            emitter.onCompletion(() -> emitters.remove(emitter));
+            emitter.onTimeout(() -> {
+                emitters.remove(emitter);
+                emitter.complete();
+            });
+            emitter.onError(error -> emitters.remove(emitter));
+            enqueue(new Event("status", describe(), emitter, false));
+            return true;
+        }
+
+        void broadcast(String name, Object data) {
+            enqueue(new Event(name, data, null, false));
+        }
+
+        synchronized void finish(Map<String, Object> summary) {
+            finished = true;
+            enqueue(new Event("done", summary, null, true));
+        }
+
+        Map<String, Object> describe() {
+            Map<String, Object> view = ExportJobService.this.describe(job, false);
+            view.put("total", queued.get());
+            view.put("processed", processed.get());
+            view.put("matched", matched.get());
+            view.put("failed", failed.get());
+            view.put("unmatched", processed.get() - matched.get() - failed.get());
+            return view;
+        }
+
+        private void enqueue(Event event) {
+            events.add(event);
+            scheduleDrain();
+        }
+
+        private void scheduleDrain() {
+            if (!draining.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                exportEventExecutor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // shutting down, the clients are disconnected anyway
+                draining.set(false);
+            }
+        }
+
+        private void drain() {
+            Event event;
+            while ((event = events.poll()) != null) {
+                deliver(event);
+            }
+            draining.set(false);
+            // an event queued after the last poll but before the flag was cleared
+            if (!events.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+
+        private void deliver(Event event) {
+            if (event.target() != null) {
+                send(event.target(), event.name(), event.data());
+                return;
+            }
+            for (SseEmitter emitter : emitters) {
+                if (send(emitter, event.name(), event.data()) && event.last()) {
+                    emitter.complete();
+                }
+            }
+            if (event.last()) {
+                emitters.clear();
+            }
+        }
+
+        // a failed send means the client went away, it is dropped rather than failing the export
+        private boolean send(SseEmitter emitter, String name, Object data) {
+            try {
+                emitter.send(SseEmitter.event().name(name).data(data));
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                emitters.remove(emitter);
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+    }
+
+    // target is null for events sent to every subscriber
+    private record Event(String name, Object data, SseEmitter target, boolean last) {
+    }
+}
@@ -0,0 +1,321 @@
+package com.example.tunemerge.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.tunemerge.model.ExportResult;
+import com.example.tunemerge.model.SearchResult;
+import com.example.tunemerge.model.TrackInfo;
+import com.google.api.services.youtube.model.PlaylistItem;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+@Service
+public class ExportService {
+    private static final Logger logger = LoggerFactory.getLogger(ExportService.class);
+
+    private final SpotifyService spotifyService;
+    private final SpotifySearchPlanner searchPlanner;
+    private final YouTubeService youTubeService;
+    private final MatchCacheService matchCacheService;
+    private final LocalTrackIndex localTrackIndex;
+    private final TitleNormalizer titleNormalizer;
+    private final ExecutorService exportExecutor;
+    private final int perUserConcurrency;
+    private final boolean matchDuration;
+    private final MeterRegistry meterRegistry;
+    // only users with an export running have an entry
+    private final ConcurrentMap<String, UserPermits> userPermits = new ConcurrentHashMap<>();
+
+    /**
+     * Receives per-item progress of an export. Called from worker threads,
+     * items may complete out of playlist order
+     */
+    public interface MatchListener {
+        MatchListener NONE = new MatchListener() { };
+
+        default void onItemQueued(int index, String videoTitle) { }
+
+        /** @param match the accepted match, or null when the item stayed unmatched */
+        default void onItemMatched(int index, String videoTitle, SearchResult match) { }
+
+        /** The Spotify lookup failed, for instance still throttled after all retries */
+        default void onItemFailed(int index, String videoTitle, Throwable error) { }
+    }
+
+    public ExportService(SpotifyService spotifyService,
+                         SpotifySearchPlanner searchPlanner,
+                         YouTubeService youTubeService,
+                         MatchCacheService matchCacheService,
+                         LocalTrackIndex localTrackIndex,
+                         TitleNormalizer titleNormalizer,
+                         @Qualifier("exportExecutor") ExecutorService exportExecutor,
+                         @Value("${export.per-user-concurrency:4}") int perUserConcurrency,
+                         @Value("${match.duration:true}") boolean matchDuration,
+                         MeterRegistry meterRegistry) {
+        this.spotifyService = spotifyService;
+        this.searchPlanner = searchPlanner;
+        this.youTubeService = youTubeService;
+        this.matchCacheService = matchCacheService;
+        this.localTrackIndex = localTrackIndex;
+        this.titleNormalizer = titleNormalizer;
+        this.exportExecutor = exportExecutor;
+        this.perUserConcurrency = perUserConcurrency;
+        this.matchDuration = matchDuration;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Match YouTube playlist items against Spotify in parallel
+     * @param playlistPages YouTube playlist pages in playlist order
+     * @param spotifyId Spotify user whose token is used for the searches
+     * @return matched and unmatched tracks, both in the original playlist order
+     */
+    public ExportResult matchPlaylistItems(Iterator<List<PlaylistItem>> playlistPages, String spotifyId) {
+        return matchPlaylistItems(playlistPages, spotifyId, MatchListener.NONE);
+    }
+
+    /**
+     * Same as {@link #matchPlaylistItems(Iterator, String)}, reporting each item to the listener
+     * as it is queued and as its search completes
+     */
+    public ExportResult matchPlaylistItems(Iterator<List<PlaylistItem>> playlistPages, String spotifyId,
+                                           MatchListener listener) {
+        UserPermits user = userPermits.compute(spotifyId,
+            (id, current) -> (current != null ? current : new UserPermits(perUserConcurrency)).join());
+        try {
+            return matchItems(playlistPages, spotifyId, listener, user.permits);
+        } finally {
+            userPermits.computeIfPresent(spotifyId, (id, current) -> current.leave() ? null : current);
+        }
+    }
+
+    private ExportResult matchItems(Iterator<List<PlaylistItem>> playlistPages, String spotifyId,
+                                    MatchListener listener, Semaphore permits) {
+        List<String> videoTitles = new ArrayList<>();
+        List<CompletableFuture<SearchResult>> pending = new ArrayList<>();
+        Set<String> library = localTrackIndex.libraryOf(spotifyId);
+
+        // Items are submitted as soon as their page arrives. The permit is taken
+        // here rather than inside the task so one user's large playlist never
+        // parks more than its share of the worker pool
+        while (playlistPages.hasNext()) {
+            List<PlaylistItem> page = playlistPages.next();
+            CompletableFuture<Map<String, Long>> durations = videoDurations(page);
+            for (PlaylistItem item : page) {
+                String videoTitle = item.getSnippet().getTitle();
+                String videoId = videoId(item);
+                int index = videoTitles.size();
+                listener.onItemQueued(index, videoTitle);
+                acquire(permits);
+                try {
+                    pending.add(durations
+                        .thenApplyAsync(lengths -> matchVideoTitle(videoTitle, lengths.get(videoId), spotifyId, library), exportExecutor)
+                        .whenComplete((match, error) -> {
+                            permits.release();
+                            if (error != null) {
+                                listener.onItemFailed(index, videoTitle, error);
+                            } else {
+                                listener.onItemMatched(index, videoTitle, isAccepted(match) ? match : null);
+                            }
+                        }));
+                } catch (RuntimeException e) {
+                    permits.release();
+                    throw e;
+                }
+                videoTitles.add(videoTitle);
+            }
+        }
+
+        ExportResult result = new ExportResult();
+        for (int i = 0; i < videoTitles.size(); i++) {
+            String videoTitle = videoTitles.get(i);
+            SearchResult match;
+            try {
+                match = pending.get(i).join();
+            } catch (CompletionException e) {
+                // reported apart from unmatched, the title may well exist on Spotify
+                logger.error("Error matching YouTube title '{}': {}", videoTitle, e.getCause().getMessage());
+                result.getFailed().add(videoTitle);
+                countResult("failed", null);
+                continue;
+            }
+
+            if (isAccepted(match)) {
+                result.getMatched().add(match);
+                countResult("matched", match);
+            } else {
+                result.getUnmatched().add(videoTitle);
+                countResult("unmatched", match);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Match the playlist and write the matches to a new private Spotify playlist,
+     * starting the writes while later items are still being searched
+     * @param playlistName name of the Spotify playlist, created with the first chunk of matches
+     * @return the match result with the new playlist's ID, which is null when nothing matched
+     */
+    public ExportResult exportToNewPlaylist(Iterator<List<PlaylistItem>> playlistPages, String spotifyId,
+                                            String playlistName, MatchListener listener) {
+        PlaylistCommitter committer = new PlaylistCommitter(spotifyService, spotifyId, playlistName,
+            "Exported from YouTube by TuneMerge", exportExecutor);
+        Timer.Sample matchStage = Timer.start(meterRegistry);
+        ExportResult result = matchPlaylistItems(playlistPages, spotifyId, new MatchListener() {
+            @Override
+            public void onItemQueued(int index, String videoTitle) {
+                listener.onItemQueued(index, videoTitle);
+            }
+
+            @Override
+            public void onItemMatched(int index, String videoTitle, SearchResult match) {
+                committer.onItemMatched(index, videoTitle, match);
+                listener.onItemMatched(index, videoTitle, match);
+            }
+
+            @Override
+            public void onItemFailed(int index, String videoTitle, Throwable error) {
+                committer.onItemFailed(index, videoTitle, error);
+                listener.onItemFailed(index, videoTitle, error);
+            }
+        });
+
+        matchStage.stop(stageTimer("match"));
+
+        // writes overlap matching, this is only the tail left once the last item matched
+        Timer.Sample writeStage = Timer.start(meterRegistry);
+        try {
+            committer.finish().join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Writing Spotify playlist " + playlistName + " failed after "
+                + committer.getWritten() + " tracks: " + e.getCause().getMessage(), e.getCause());
+        } finally {
+            writeStage.stop(stageTimer("write-tail"));
+        }
+        result.setSpotifyPlaylistId(committer.getPlaylistId());
+        logger.info("Wrote {} tracks to Spotify playlist {}", committer.getWritten(), committer.getPlaylistId());
+        return result;
+    }
+
+    private Timer stageTimer(String stage) {
+        return Timer.builder("tunemerge.export.stage")
+            .description("Time spent in each stage of an export")
+            .tag("stage", stage)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    // similarity in steps of 0.1, "none" when Spotify returned no usable candidate
+    private void countResult(String result, SearchResult match) {
+        String bucket = match != null ? String.format(Locale.ROOT, "%.1f", Math.floor(match.getSimilarity() * 10) / 10) : "none";
+        Counter.builder("tunemerge.match.results")
+            .description("Export items by match result and similarity bucket")
+            .tag("result", result)
+            .tag("similarity", bucket)
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private static boolean isAccepted(SearchResult match) {
+        return match != null && match.getSimilarity() > MatchScorer.MATCH_THRESHOLD;
+    }
+
+    // lengths of a page's videos for scoring candidates, matching goes on without them when the lookup fails
+    private CompletableFuture<Map<String, Long>> videoDurations(List<PlaylistItem> page) {
+        if (!matchDuration) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+        List<String> videoIds = new ArrayList<>();
+        for (PlaylistItem item : page) {
+            String videoId = videoId(item);
+            if (videoId != null) {
+                videoIds.add(videoId);
+            }
+        }
+        return CompletableFuture
+            .supplyAsync(() -> {
+                try {
+                    return youTubeService.getVideoDurations(videoIds);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, exportExecutor)
+            .exceptionally(error -> {
+                logger.warn("Looking up video lengths failed, matching without them: {}", error.getMessage());
+                return Collections.emptyMap();
+            });
+    }
+
+    private static String videoId(PlaylistItem item) {
+        return item.getContentDetails() != null ? item.getContentDetails().getVideoId() : null;
+    }
+
+    private SearchResult matchVideoTitle(String videoTitle, Long durationMs, String spotifyId, Set<String> library) {
+        TrackInfo trackInfo = titleNormalizer.parse(videoTitle);
+        // tracks already in the user's own library need no Spotify search
+        SearchResult local = localTrackIndex.findMatch(trackInfo.getTitle(), trackInfo.getArtist(), library);
+        if (local != null) {
+            return local;
+        }
+        return matchCacheService.getOrLoad(trackInfo.getTitle(), trackInfo.getArtist(), () -> {
+            try {
+                return searchPlanner.findBestMatch(trackInfo.getTitle(), trackInfo.getArtist(), durationMs, spotifyId);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    // permits shared by the running exports of one user
+    private static final class UserPermits {
+        private final Semaphore permits;
+        // only changed inside userPermits.compute, which serializes it per user
+        private int exports;
+
+        private UserPermits(int concurrency) {
+            this.permits = new Semaphore(concurrency, true);
+        }
+
+        private UserPermits join() {
+            exports++;
+            return this;
+        }
+
+        /** @return true when this was the user's last running export */
+        private boolean leave() {
+            return --exports == 0;
+        }
+    }
+
+    private void acquire(Semaphore permits) {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Export interrupted", e);
+        }
+    }
+}
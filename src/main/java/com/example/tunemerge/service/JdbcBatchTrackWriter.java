@@ -0,0 +1,79 @@
+package com.example.tunemerge.service;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.Session;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.tunemerge.model.Track;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Inserts tracks with JDBC batches of jpa.jdbc.batch-size. Each row is only
+ * written when its playlist does not have the track yet, so a concurrent sync
+ * of the same playlist does not fail the batch on the unique index.
+ * Works on every database.
+ */
+@Component("jdbcBatch")
+public class JdbcBatchTrackWriter implements TrackWriter {
+
+    private static final String INSERT_MISSING =
+        "INSERT INTO tracks (id, name, artist, album, spotify_id, playlist_id) "
+            + "SELECT ?, ?, ?, ?, ?, ? WHERE NOT EXISTS "
+            + "(SELECT 1 FROM tracks WHERE playlist_id = ? AND spotify_id = ?)";
+
+    private final TrackIdAllocator idAllocator;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${jpa.jdbc.batch-size:50}")
+    private int batchSize;
+
+    public JdbcBatchTrackWriter(TrackIdAllocator idAllocator) {
+        this.idAllocator = idAllocator;
+    }
+
+    @Override
+    public List<Track> insert(List<Track> tracks) {
+        if (tracks.isEmpty()) {
+            return tracks;
+        }
+        // the existence checks read the table directly, earlier changes of the transaction have to be written first
+        entityManager.flush();
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            idAllocator.assignIds(connection, tracks);
+            List<Track> inserted = new ArrayList<>(tracks.size());
+            try (PreparedStatement statement = connection.prepareStatement(INSERT_MISSING)) {
+                for (int start = 0; start < tracks.size(); start += batchSize) {
+                    List<Track> batch = tracks.subList(start, Math.min(start + batchSize, tracks.size()));
+                    for (Track track : batch) {
+                        statement.setLong(1, track.getId());
+                        statement.setString(2, track.getName());
+                        statement.setString(3, track.getArtist());
+                        statement.setString(4, track.getAlbum());
+                        statement.setString(5, track.getSpotifyId());
+                        statement.setLong(6, track.getPlaylist().getId());
+                        statement.setLong(7, track.getPlaylist().getId());
+                        statement.setString(8, track.getSpotifyId());
+                        statement.addBatch();
+                    }
+                    // 0 for rows another sync stored first; drivers that cannot tell are taken as inserted
+                    int[] counts = statement.executeBatch();
+                    for (int i = 0; i < counts.length; i++) {
+                        if (counts[i] > 0 || counts[i] == Statement.SUCCESS_NO_INFO) {
+                            inserted.add(batch.get(i));
+                        }
+                    }
+                }
+            }
+            return inserted;
+        });
+    }
+}
@@ -0,0 +1,516 @@
+package com.example.tunemerge.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.example.tunemerge.model.SearchResult;
+import com.example.tunemerge.model.Track;
+import com.example.tunemerge.repository.TrackRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-memory trigram index over the tracks stored from users' Spotify
+ * playlists, so exports can match titles already in the library without a
+ * Spotify search. Every distinct Spotify track is one document numbered in
+ * insertion order; its folded "name artist" is split into character trigrams
+ * packed into longs, each with an ascending int array of document numbers.
+ * Trigrams and Spotify IDs are looked up in open-addressing tables of
+ * primitives, and repeated names and artists are interned so tracks share
+ * one string for them.
+ * <p>
+ * Lookups are restricted to one user's library, the index itself holds every
+ * user's tracks. Tracks removed from a playlist stay in the index until the
+ * next start rebuilds it from the tracks table, the library check drops them.
+ */
+@Service
+public class LocalTrackIndex {
+    private static final Logger logger = LoggerFactory.getLogger(LocalTrackIndex.class);
+
+    private static final int BUILD_BATCH_SIZE = 10_000;
+    private static final int MAX_CANDIDATES = 10;
+    private static final int INITIAL_CAPACITY = 1024;
+    // tables are grown before they are more than half full
+    private static final int TABLE_CAPACITY = 2048;
+
+    private static final ThreadLocal<long[]> GRAMS = ThreadLocal.withInitial(() -> new long[64]);
+
+    private final TrackRepository trackRepository;
+    private final TitleNormalizer titleNormalizer;
+    private final MatchScorer matchScorer;
+    private final boolean enabled;
+    private final double minSimilarity;
+    private final int maxPostingScan;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // all guarded by lock
+    private final Map<String, String> interned = new HashMap<>();
+    // trigram -> 1 + its index in postingLists, 0 for a free slot
+    private long[] gramKeys = new long[TABLE_CAPACITY];
+    private int[] gramSlots = new int[TABLE_CAPACITY];
+    private Postings[] postingLists = new Postings[INITIAL_CAPACITY];
+    private int gramCount;
+    // 1 + document number, probed by the hash of its Spotify ID, 0 for a free slot
+    private int[] documentSlots = new int[TABLE_CAPACITY];
+    private String[] spotifyIds = new String[INITIAL_CAPACITY];
+    private String[] names = new String[INITIAL_CAPACITY];
+    private String[] artists = new String[INITIAL_CAPACITY];
+    private short[] gramCounts = new short[INITIAL_CAPACITY];
+    private int size;
+
+    private volatile boolean ready;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public LocalTrackIndex(TrackRepository trackRepository,
+                           TitleNormalizer titleNormalizer,
+                           Map<String, MatchScorer> matchScorers,
+                           @Value("${match.scorer:editDistance}") String scorerName,
+                           @Value("${local-index.enabled:true}") boolean enabled,
+                           @Value("${local-index.min-similarity:0.8}") double minSimilarity,
+                           @Value("${local-index.max-posting-scan:100000}") int maxPostingScan,
+                           MeterRegistry meterRegistry) {
+        this.trackRepository = trackRepository;
+        this.titleNormalizer = titleNormalizer;
+        this.matchScorer = matchScorers.get(scorerName);
+        if (this.matchScorer == null) {
+            throw new IllegalArgumentException("Unknown match.scorer " + scorerName + ", expected one of " + matchScorers.keySet());
+        }
+        this.enabled = enabled;
+        this.minSimilarity = minSimilarity;
+        this.maxPostingScan = maxPostingScan;
+
+        registerLookupCounter(meterRegistry, "hit", hits);
+        registerLookupCounter(meterRegistry, "miss", misses);
+        Gauge.builder("tunemerge.local_index.documents", this, LocalTrackIndex::size)
+            .description("Distinct Spotify tracks in the local index")
+            .register(meterRegistry);
+    }
+
+    private static void registerLookupCounter(MeterRegistry meterRegistry, String result, AtomicLong counter) {
+        FunctionCounter.builder("tunemerge.local_index.lookups", counter, AtomicLong::get)
+            .description("Local track index lookups by result")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    // loading a large tracks table takes a while, lookups miss until it is done
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildInBackground() {
+        if (!enabled) {
+            return;
+        }
+        Thread builder = new Thread(this::build, "local-track-index");
+        builder.setDaemon(true);
+        builder.start();
+    }
+
+    private void build() {
+        long start = System.nanoTime();
+        long afterId = 0;
+        try {
+            while (true) {
+                List<Object[]> rows = trackRepository.findIndexRowsAfter(afterId, PageRequest.of(0, BUILD_BATCH_SIZE));
+                if (rows.isEmpty()) {
+                    break;
+                }
+                lock.writeLock().lock();
+                try {
+                    for (Object[] row : rows) {
+                        add((String) row[1], (String) row[2], (String) row[3]);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                afterId = (Long) rows.get(rows.size() - 1)[0];
+            }
+            trimPostings();
+            ready = true;
+            logger.info("Local track index built with {} tracks and {} trigrams in {} ms",
+                size(), gramCount(), (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            logger.error("Building the local track index failed, exports will use Spotify search only: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Add newly stored tracks, tracks already indexed are skipped
+     */
+    public void addAll(List<Track> tracks) {
+        if (!enabled || tracks.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Track track : tracks) {
+                add(track.getSpotifyId(), track.getName(), track.getArtist());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Spotify IDs stored from the user's playlists, read once per export and
+     * passed to {@link #findMatch}
+     * @return the IDs, empty while the index is not ready
+     */
+    public Set<String> libraryOf(String userSpotifyId) {
+        if (!ready) {
+            return Set.of();
+        }
+        return trackRepository.findSpotifyIdsByUser(userSpotifyId);
+    }
+
+    /**
+     * Find a track of the user's library that confidently matches a title
+     * parsed from a video. Candidates share enough trigrams with the query and
+     * are then confirmed with the configured match scorer.
+     * @param title track title as extracted from the video title
+     * @param artist artist name, may be empty
+     * @param library Spotify IDs of the exporting user's tracks, from {@link #libraryOf}
+     * @return the best match, or null when the library has none above min-similarity
+     */
+    public SearchResult findMatch(String title, String artist, Set<String> library) {
+        if (!ready || library.isEmpty()) {
+            return null;
+        }
+        int queryGrams = grams(titleNormalizer.fold(title) + ' ' + titleNormalizer.fold(artist));
+        if (queryGrams == 0) {
+            misses.incrementAndGet();
+            return null;
+        }
+        long[] grams = GRAMS.get();
+
+        lock.readLock().lock();
+        try {
+            int[] candidates = candidates(grams, queryGrams, library);
+            SearchResult best = null;
+            double minScore = minSimilarity;
+            for (int doc : candidates) {
+                if (doc < 0) {
+                    break;
+                }
+                double similarity = matchScorer.score(title, artist, names[doc], artists[doc], minScore);
+                if (similarity >= minScore && (best == null || similarity > best.getSimilarity())) {
+                    best = new SearchResult(spotifyIds[doc], names[doc], artists[doc], similarity);
+                    minScore = similarity;
+                }
+            }
+            (best != null ? hits : misses).incrementAndGet();
+            return best;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("ready", ready ? 1L : 0L);
+        stats.put("tracks", (long) size());
+        stats.put("trigrams", (long) gramCount());
+        stats.put("hits", hits.get());
+        stats.put("misses", misses.get());
+        return stats;
+    }
+
+    private int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private int gramCount() {
+        lock.readLock().lock();
+        try {
+            return gramCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // caller holds the write lock
+    private void add(String spotifyId, String name, String artist) {
+        if (spotifyId == null || name == null || findDocument(spotifyId) >= 0) {
+            return;
+        }
+        int count = grams(titleNormalizer.fold(name) + ' ' + titleNormalizer.fold(artist));
+        if (count == 0) {
+            return;
+        }
+
+        if (size == spotifyIds.length) {
+            int capacity = size * 2;
+            spotifyIds = Arrays.copyOf(spotifyIds, capacity);
+            names = Arrays.copyOf(names, capacity);
+            artists = Arrays.copyOf(artists, capacity);
+            gramCounts = Arrays.copyOf(gramCounts, capacity);
+        }
+        int doc = size++;
+        spotifyIds[doc] = spotifyId;
+        names[doc] = intern(name);
+        artists[doc] = artist != null ? intern(artist) : "";
+        gramCounts[doc] = (short) Math.min(count, Short.MAX_VALUE);
+        putDocument(doc);
+
+        long[] grams = GRAMS.get();
+        for (int i = 0; i < count; i++) {
+            postingsFor(grams[i]).add(doc);
+        }
+    }
+
+    private String intern(String value) {
+        String shared = interned.putIfAbsent(value, value);
+        return shared != null ? shared : value;
+    }
+
+    // caller holds a lock
+    private int findDocument(String spotifyId) {
+        int mask = documentSlots.length - 1;
+        for (int i = mix(spotifyId.hashCode()) & mask; documentSlots[i] != 0; i = (i + 1) & mask) {
+            int doc = documentSlots[i] - 1;
+            if (spotifyIds[doc].equals(spotifyId)) {
+                return doc;
+            }
+        }
+        return -1;
+    }
+
+    // caller holds the write lock, doc is not in the table yet
+    private void putDocument(int doc) {
+        if (2 * size > documentSlots.length) {
+            documentSlots = new int[documentSlots.length * 2];
+            for (int other = 0; other < doc; other++) {
+                insertDocument(other);
+            }
+        }
+        insertDocument(doc);
+    }
+
+    private void insertDocument(int doc) {
+        int mask = documentSlots.length - 1;
+        int i = mix(spotifyIds[doc].hashCode()) & mask;
+        while (documentSlots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        documentSlots[i] = doc + 1;
+    }
+
+    // caller holds a lock
+    private Postings findPostings(long gram) {
+        int mask = gramKeys.length - 1;
+        for (int i = mix(Long.hashCode(gram)) & mask; gramSlots[i] != 0; i = (i + 1) & mask) {
+            if (gramKeys[i] == gram) {
+                return postingLists[gramSlots[i] - 1];
+            }
+        }
+        return null;
+    }
+
+    // caller holds the write lock
+    private Postings postingsFor(long gram) {
+        Postings found = findPostings(gram);
+        if (found != null) {
+            return found;
+        }
+        if (2 * (gramCount + 1) > gramKeys.length) {
+            growGrams();
+        }
+        if (gramCount == postingLists.length) {
+            postingLists = Arrays.copyOf(postingLists, gramCount * 2);
+        }
+        Postings created = new Postings();
+        postingLists[gramCount++] = created;
+        insertGram(gram, gramCount);
+        return created;
+    }
+
+    private void growGrams() {
+        long[] oldKeys = gramKeys;
+        int[] oldSlots = gramSlots;
+        gramKeys = new long[oldKeys.length * 2];
+        gramSlots = new int[oldSlots.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldSlots[i] != 0) {
+                insertGram(oldKeys[i], oldSlots[i]);
+            }
+        }
+    }
+
+    private void insertGram(long gram, int slot) {
+        int mask = gramKeys.length - 1;
+        int i = mix(Long.hashCode(gram)) & mask;
+        while (gramSlots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        gramKeys[i] = gram;
+        gramSlots[i] = slot;
+    }
+
+    // spreads the low bits that the mask keeps, packed chars and short IDs hash close together
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Count for every document how many of the query trigrams it has by merging
+     * the ascending postings, and keep the ones with the highest Dice coefficient.
+     * Trigrams in more than max-posting-scan documents carry little signal and are skipped.
+     * Documents outside the library are left out before they can take a slot.
+     * @return up to MAX_CANDIDATES documents, best first, padded with -1
+     */
+    private int[] candidates(long[] grams, int queryGrams, Set<String> library) {
+        int[][] lists = new int[queryGrams][];
+        int[] sizes = new int[queryGrams];
+        int[] cursors = new int[queryGrams];
+        // binary min-heap of list numbers ordered by the document at their cursor
+        int[] heap = new int[queryGrams];
+        int heapSize = 0;
+        for (int i = 0; i < queryGrams; i++) {
+            Postings gramPostings = findPostings(grams[i]);
+            if (gramPostings != null && gramPostings.size <= maxPostingScan) {
+                lists[i] = gramPostings.docs;
+                sizes[i] = gramPostings.size;
+                heap[heapSize++] = i;
+            }
+        }
+        for (int i = heapSize / 2 - 1; i >= 0; i--) {
+            siftDown(heap, heapSize, i, lists, cursors);
+        }
+
+        int[] topDocs = new int[MAX_CANDIDATES];
+        double[] topScores = new double[MAX_CANDIDATES];
+        Arrays.fill(topDocs, -1);
+        while (heapSize > 0) {
+            int doc = lists[heap[0]][cursors[heap[0]]];
+            int shared = 0;
+            // every list positioned on doc moves past it, the heap top is the next smallest
+            while (heapSize > 0 && lists[heap[0]][cursors[heap[0]]] == doc) {
+                int list = heap[0];
+                shared++;
+                if (++cursors[list] == sizes[list]) {
+                    heap[0] = heap[--heapSize];
+                }
+                if (heapSize > 0) {
+                    siftDown(heap, heapSize, 0, lists, cursors);
+                }
+            }
+
+            double dice = 2.0 * shared / (queryGrams + gramCounts[doc]);
+            if (dice < minSimilarity || dice <= topScores[MAX_CANDIDATES - 1]
+                    || !library.contains(spotifyIds[doc])) {
+                continue;
+            }
+            int at = MAX_CANDIDATES - 1;
+            while (at > 0 && topScores[at - 1] < dice) {
+                topScores[at] = topScores[at - 1];
+                topDocs[at] = topDocs[at - 1];
+                at--;
+            }
+            topScores[at] = dice;
+            topDocs[at] = doc;
+        }
+        return topDocs;
+    }
+
+    private static void siftDown(int[] heap, int heapSize, int at, int[][] lists, int[] cursors) {
+        int list = heap[at];
+        int doc = lists[list][cursors[list]];
+        while (true) {
+            int child = 2 * at + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            int childDoc = lists[heap[child]][cursors[heap[child]]];
+            if (child + 1 < heapSize) {
+                int rightDoc = lists[heap[child + 1]][cursors[heap[child + 1]]];
+                if (rightDoc < childDoc) {
+                    child++;
+                    childDoc = rightDoc;
+                }
+            }
+            if (doc <= childDoc) {
+                break;
+            }
+            heap[at] = heap[child];
+            at = child;
+        }
+        heap[at] = list;
+    }
+
+    /**
+     * Write the distinct trigrams of " text " to the per-thread buffer, sorted.
+     * Each gram packs its three chars into one long.
+     * @return number of distinct trigrams
+     */
+    private static int grams(String text) {
+        String padded = ' ' + text.trim() + ' ';
+        int count = padded.length() - 2;
+        if (count <= 0) {
+            return 0;
+        }
+        long[] grams = GRAMS.get();
+        if (grams.length < count) {
+            grams = new long[count];
+            GRAMS.set(grams);
+        }
+        for (int i = 0; i < count; i++) {
+            grams[i] = ((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2);
+        }
+        Arrays.sort(grams, 0, count);
+
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || grams[unique - 1] != grams[i]) {
+                grams[unique++] = grams[i];
+            }
+        }
+        return unique;
+    }
+
+    // drop the spare capacity left by doubling once the bulk load is done
+    private void trimPostings() {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < gramCount; i++) {
+                postingLists[i].docs = Arrays.copyOf(postingLists[i].docs, postingLists[i].size);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // document numbers containing one trigram, ascending since documents are only appended
+    private static final class Postings {
+        private int[] docs = new int[2];
+        private int size;
+
+        void add(int doc) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, Math.max(2, size * 2));
+            }
+            docs[size++] = doc;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.tunemerge.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import com.example.tunemerge.model.MatchCacheEntry;
+import com.example.tunemerge.model.SearchResult;
+import com.example.tunemerge.repository.MatchCacheRepository;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Caches Spotify matches by normalized (title, artist). A bounded in-memory
+ * tier sits in front of the match_cache table so hits survive restarts.
+ * "No match" results are cached too, with a shorter time to live.
+ * Concurrent misses on one key share a single load.
+ */
+@Service
+public class MatchCacheService {
+    private static final Logger logger = LoggerFactory.getLogger(MatchCacheService.class);
+
+    private final MatchCacheRepository matchCacheRepository;
+    private final TitleNormalizer titleNormalizer;
+    private final BoundedCache<String, Optional<SearchResult>> memory;
+    private final Duration ttl;
+    private final Duration negativeTtl;
+    private final ConcurrentMap<String, CompletableFuture<Optional<SearchResult>>> loads = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public MatchCacheService(MatchCacheRepository matchCacheRepository,
+                             TitleNormalizer titleNormalizer,
+                             @Value("${match-cache.max-size:10000}") int maxSize,
+                             @Value("${match-cache.ttl:7d}") Duration ttl,
+                             @Value("${match-cache.negative-ttl:1d}") Duration negativeTtl,
+                             MeterRegistry meterRegistry) {
+        this.matchCacheRepository = matchCacheRepository;
+        this.titleNormalizer = titleNormalizer;
+        this.memory = new BoundedCache<>(maxSize);
+        this.ttl = ttl;
+        this.negativeTtl = negativeTtl;
+
+        registerLookupCounter(meterRegistry, "hit", hits);
+        registerLookupCounter(meterRegistry, "negative_hit", negativeHits);
+        registerLookupCounter(meterRegistry, "miss", misses);
+        FunctionCounter.builder("tunemerge.match_cache.evictions", memory, BoundedCache::getEvictions)
+            .register(meterRegistry);
+        Gauge.builder("tunemerge.match_cache.size", memory, BoundedCache::size)
+            .register(meterRegistry);
+    }
+
+    private static void registerLookupCounter(MeterRegistry meterRegistry, String result, AtomicLong counter) {
+        FunctionCounter.builder("tunemerge.match_cache.lookups", counter, AtomicLong::get)
+            .description("Match cache lookups by result")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Return the cached match for a title and artist, or load and cache it
+     * @param title track title as extracted from the video title
+     * @param artist artist name, may be empty
+     * @param loader performs the real search, returns null when nothing matched
+     * @return the match, or null when there is no match
+     */
+    public SearchResult getOrLoad(String title, String artist, Supplier<SearchResult> loader) {
+        String key = titleNormalizer.normalizedKey(title, artist);
+
+        Optional<SearchResult> cached = memory.get(key);
+        if (cached == null) {
+            cached = loadPersisted(key);
+        }
+        if (cached != null) {
+            (cached.isPresent() ? hits : negativeHits).incrementAndGet();
+            return cached.orElse(null);
+        }
+
+        misses.incrementAndGet();
+        return load(key, loader);
+    }
+
+    // one search per key at a time, concurrent callers wait for it instead of searching and saving again
+    private SearchResult load(String key, Supplier<SearchResult> loader) {
+        CompletableFuture<Optional<SearchResult>> mine = new CompletableFuture<>();
+        CompletableFuture<Optional<SearchResult>> inFlight = loads.putIfAbsent(key, mine);
+        if (inFlight != null) {
+            return await(inFlight).orElse(null);
+        }
+
+        try {
+            // a load that finished between the miss and putIfAbsent already stored it
+            Optional<SearchResult> loaded = memory.get(key);
+            if (loaded == null) {
+                // exceptions from the loader are not cached, the next export retries
+                loaded = Optional.ofNullable(loader.get());
+                store(key, loaded.orElse(null));
+            }
+            mine.complete(loaded);
+            return loaded.orElse(null);
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loads.remove(key, mine);
+        }
+    }
+
+    private static Optional<SearchResult> await(CompletableFuture<Optional<SearchResult>> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.get());
+        stats.put("negativeHits", negativeHits.get());
+        stats.put("misses", misses.get());
+        stats.put("evictions", memory.getEvictions());
+        stats.put("size", (long) memory.size());
+        return stats;
+    }
+
+    private Optional<SearchResult> loadPersisted(String key) {
+        try {
+            Optional<MatchCacheEntry> stored = matchCacheRepository.findById(key);
+            if (stored.isEmpty()) {
+                return null;
+            }
+            MatchCacheEntry entry = stored.get();
+            Duration entryTtl = entry.getSpotifyTrackId() != null ? ttl : negativeTtl;
+            Duration remaining = Duration.between(LocalDateTime.now(), entry.getCreatedAt().plus(entryTtl));
+            if (remaining.isNegative() || remaining.isZero()) {
+                return null;
+            }
+
+            Optional<SearchResult> cached = entry.getSpotifyTrackId() != null
+                ? Optional.of(new SearchResult(entry.getSpotifyTrackId(), entry.getName(), entry.getArtist(), entry.getSimilarity()))
+                : Optional.empty();
+            memory.put(key, cached, remaining.toMillis());
+            return cached;
+        } catch (Exception e) {
+            logger.error("Error reading match cache entry {}: {}", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(String key, SearchResult match) {
+        memory.put(key, Optional.ofNullable(match), (match != null ? ttl : negativeTtl).toMillis());
+
+        MatchCacheEntry entry = new MatchCacheEntry();
+        entry.setCacheKey(key);
+        entry.setCreatedAt(LocalDateTime.now());
+        if (match != null) {
+            entry.setSpotifyTrackId(match.getId());
+            entry.setName(match.getName());
+            entry.setArtist(match.getArtist());
+            entry.setSimilarity(match.getSimilarity());
+        }
+        try {
+            matchCacheRepository.save(entry);
+        } catch (DataIntegrityViolationException e) {
+            // another instance stored the same key first, its entry is as good as ours
+            logger.debug("Match cache entry {} was already stored", key);
+        } catch (Exception e) {
+            logger.error("Error saving match cache entry {}: {}", key, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.tunemerge.service;
+
+/**
+ * Scores how well a Spotify candidate matches a track parsed from a YouTube title.
+ */
+public interface MatchScorer {
+
+    // Threshold for good matches
+    double MATCH_THRESHOLD = 0.6;
+
+    /**
+     * @param queryTitle track title parsed from the YouTube video title
+     * @param queryArtist artist parsed from the video title, may be empty
+     * @param candidateTitle Spotify track name
+     * @param candidateArtist Spotify artist name
+     * @param minScore scores below this are not needed, the scorer may stop early and return 0
+     * @return similarity between 0 and 1
+     */
+    double score(String queryTitle, String queryArtist, String candidateTitle, String candidateArtist, double minScore);
+}
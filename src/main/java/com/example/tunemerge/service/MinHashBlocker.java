@@ -0,0 +1,192 @@
+package com.example.tunemerge.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Locality sensitive blocking for comparing two large track lists. Each text
+ * gets a MinHash signature over its character trigrams, cut into bands of
+ * rowsPerBand values; texts sharing any band land in the same bucket and
+ * become a candidate pair. Pairs with trigram Jaccard similarity s become
+ * candidates with probability 1 - (1 - s^rows)^bands, so near duplicates are
+ * found while the bulk of unrelated pairs is never scored.
+ * Texts are expected to be folded already, see {@link TitleNormalizer#fold(String)}.
+ */
+public class MinHashBlocker {
+
+    private static final ThreadLocal<long[]> SHINGLES = ThreadLocal.withInitial(() -> new long[64]);
+
+    private final int bands;
+    private final int rowsPerBand;
+
+    public MinHashBlocker(int bands, int rowsPerBand) {
+        if (bands < 1 || rowsPerBand < 1) {
+            throw new IllegalArgumentException("bands and rowsPerBand must be positive");
+        }
+        this.bands = bands;
+        this.rowsPerBand = rowsPerBand;
+    }
+
+    /**
+     * @return one bucket key per band, with the band number mixed in so equal
+     *         values in different bands do not collide; empty for blank text
+     */
+    public long[] bandKeys(String text) {
+        int count = shingles(text);
+        if (count == 0) {
+            return new long[0];
+        }
+        long[] shingles = SHINGLES.get();
+        long[] signature = new long[bands * rowsPerBand];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        // hash function i is h1 + i * h2, two base hashes per shingle give all of them
+        for (int s = 0; s < count; s++) {
+            long h1 = shingles[s];
+            long h2 = mix(h1 ^ 0x9e3779b97f4a7c15L) | 1;
+            for (int i = 0; i < signature.length; i++) {
+                long value = h1 + i * h2;
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+
+        long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long key = mix(band + 1);
+            for (int r = 0; r < rowsPerBand; r++) {
+                key = mix(key ^ signature[band * rowsPerBand + r]);
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+
+    /**
+     * Bucket every text by its band keys
+     * @param texts folded texts, identified by their list index
+     */
+    public Buckets bucket(List<String> texts) {
+        Buckets buckets = new Buckets(texts.size());
+        for (int i = 0; i < texts.size(); i++) {
+            for (long key : bandKeys(texts.get(i))) {
+                buckets.members.computeIfAbsent(key, k -> new IntList()).add(i);
+            }
+        }
+        return buckets;
+    }
+
+    /**
+     * Bucketed texts. Never changed once {@link #bucket(List)} returns, so one
+     * instance can be cached and read by any number of threads; the per-query
+     * scratch state lives in {@link Query}.
+     */
+    public final class Buckets {
+        private final Map<Long, IntList> members = new HashMap<>();
+        private final int size;
+
+        private Buckets(int size) {
+            this.size = size;
+        }
+
+        /**
+         * @return scratch state for the candidate lookups of one request
+         */
+        public Query newQuery() {
+            return new Query(this);
+        }
+
+        public int bucketCount() {
+            return members.size();
+        }
+    }
+
+    /**
+     * Candidate lookups against one {@link Buckets}, with the scratch array that
+     * drops texts met again in a later band. Not thread safe: each request
+     * takes its own from {@link Buckets#newQuery()}, and an instance must never
+     * be shared between requests or kept alongside the cached buckets.
+     */
+    public final class Query {
+        private final Buckets buckets;
+        private final int[] seenBy;
+        private int query;
+
+        private Query(Buckets buckets) {
+            this.buckets = buckets;
+            this.seenBy = new int[buckets.size];
+        }
+
+        /**
+         * Pass the index of every bucketed text sharing a band with text to consumer, once each
+         * @return number of candidates
+         */
+        public int forEachCandidate(String text, IntConsumer consumer) {
+            query++;
+            int candidates = 0;
+            for (long key : bandKeys(text)) {
+                IntList bucket = buckets.members.get(key);
+                if (bucket == null) {
+                    continue;
+                }
+                for (int i = 0; i < bucket.size; i++) {
+                    int member = bucket.values[i];
+                    if (seenBy[member] != query) {
+                        seenBy[member] = query;
+                        candidates++;
+                        consumer.accept(member);
+                    }
+                }
+            }
+            return candidates;
+        }
+    }
+
+    // distinct hashed trigrams of " text " into the per-thread buffer, returns the count
+    private static int shingles(String text) {
+        String padded = ' ' + text.trim() + ' ';
+        int count = padded.length() - 2;
+        if (count <= 0) {
+            return 0;
+        }
+        long[] shingles = SHINGLES.get();
+        if (shingles.length < count) {
+            shingles = new long[count];
+            SHINGLES.set(shingles);
+        }
+        for (int i = 0; i < count; i++) {
+            shingles[i] = mix(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+        }
+        Arrays.sort(shingles, 0, count);
+
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || shingles[unique - 1] != shingles[i]) {
+                shingles[unique++] = shingles[i];
+            }
+        }
+        return unique;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+
+    private static final class IntList {
+        private int[] values = new int[2];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.tunemerge.service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.example.tunemerge.model.OverlapReport;
+import com.example.tunemerge.model.SearchResult;
+import com.example.tunemerge.model.TrackInfo;
+import com.example.tunemerge.repository.TrackRepository;
+import com.google.api.services.youtube.model.PlaylistItem;
+
+/**
+ * Finds which items of a YouTube playlist are already in a user's stored
+ * Spotify library. The library is bucketed with MinHash/LSH once, so each
+ * item is only scored against the few tracks sharing a bucket with it instead
+ * of the whole library. Bucketed libraries are cached per user until the
+ * user's playlists are synced again or the entry expires.
+ */
+@Service
+public class OverlapService {
+    private static final Logger logger = LoggerFactory.getLogger(OverlapService.class);
+
+    private final TrackRepository trackRepository;
+    private final YouTubeService youTubeService;
+    private final TitleNormalizer titleNormalizer;
+    private final MatchScorer matchScorer;
+    private final MinHashBlocker blocker;
+    private final BoundedCache<String, Library> libraries;
+    private final Duration libraryTtl;
+
+    public OverlapService(TrackRepository trackRepository,
+                          YouTubeService youTubeService,
+                          TitleNormalizer titleNormalizer,
+                          Map<String, MatchScorer> matchScorers,
+                          @Value("${match.scorer:editDistance}") String scorerName,
+                          @Value("${overlap.lsh.bands:20}") int bands,
+                          @Value("${overlap.lsh.rows:4}") int rowsPerBand,
+                          @Value("${overlap.library-cache.max-size:100}") int libraryCacheSize,
+                          @Value("${overlap.library-cache.ttl:30m}") Duration libraryTtl) {
+        this.trackRepository = trackRepository;
+        this.youTubeService = youTubeService;
+        this.titleNormalizer = titleNormalizer;
+        this.matchScorer = matchScorers.get(scorerName);
+        if (this.matchScorer == null) {
+            throw new IllegalArgumentException("Unknown match.scorer " + scorerName + ", expected one of " + matchScorers.keySet());
+        }
+        this.blocker = new MinHashBlocker(bands, rowsPerBand);
+        this.libraries = new BoundedCache<>(libraryCacheSize);
+        this.libraryTtl = libraryTtl;
+    }
+
+    /**
+     * Drop the cached library of a user, called after the user's tracks changed
+     */
+    public void invalidate(String spotifyId) {
+        libraries.remove(spotifyId);
+    }
+
+    /**
+     * Compare a YouTube playlist with every track stored for a Spotify user
+     * @param youtubePlaylistId playlist of the linked YouTube account
+     * @param spotifyId user whose stored playlists form the library
+     * @throws java.io.UncheckedIOException when fetching the YouTube playlist fails
+     */
+    public OverlapReport report(String youtubePlaylistId, String spotifyId) {
+        long start = System.nanoTime();
+
+        Library cached = libraries.get(spotifyId);
+        if (cached == null) {
+            cached = loadLibrary(spotifyId);
+            libraries.put(spotifyId, cached, libraryTtl.toMillis());
+        }
+        List<String[]> library = cached.tracks();
+        // per request, the cached buckets are shared
+        MinHashBlocker.Query buckets = cached.buckets().newQuery();
+
+        OverlapReport report = new OverlapReport();
+        report.setYoutubePlaylistId(youtubePlaylistId);
+        report.setLibraryTracks(library.size());
+        long candidatePairs = 0;
+        try (PlaylistItemPages pages = youTubeService.getPlaylistTrackPages(youtubePlaylistId)) {
+            while (pages.hasNext()) {
+                for (PlaylistItem item : pages.next()) {
+                    String videoTitle = item.getSnippet().getTitle();
+                    TrackInfo trackInfo = titleNormalizer.parse(videoTitle);
+                    String text = titleNormalizer.fold(trackInfo.getTitle()) + ' ' + titleNormalizer.fold(trackInfo.getArtist());
+
+                    // each candidate only has to beat the best so far
+                    SearchResult[] best = new SearchResult[1];
+                    candidatePairs += buckets.forEachCandidate(text, candidate -> {
+                        String[] track = library.get(candidate);
+                        double minScore = best[0] != null ? best[0].getSimilarity() : MatchScorer.MATCH_THRESHOLD;
+                        double similarity = matchScorer.score(trackInfo.getTitle(), trackInfo.getArtist(), track[1], track[2], minScore);
+                        if (similarity > minScore) {
+                            best[0] = new SearchResult(track[0], track[1], track[2], similarity);
+                        }
+                    });
+
+                    if (best[0] != null) {
+                        report.getInLibrary().add(new OverlapReport.Overlap(videoTitle, best[0]));
+                    } else {
+                        report.getNotInLibrary().add(videoTitle);
+                    }
+                }
+            }
+        }
+        report.setPlaylistItems(report.getInLibrary().size() + report.getNotInLibrary().size());
+        report.setCandidatePairs(candidatePairs);
+
+        logger.info("Compared {} YouTube items with {} library tracks in {} ms, scored {} candidate pairs in {} buckets",
+            report.getPlaylistItems(), library.size(), (System.nanoTime() - start) / 1_000_000,
+            candidatePairs, cached.buckets().bucketCount());
+        return report;
+    }
+
+    private Library loadLibrary(String spotifyId) {
+        // a track in several playlists is compared once
+        List<String[]> tracks = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (Object[] row : trackRepository.findLibraryRowsByUser(spotifyId)) {
+            String trackId = (String) row[0];
+            if (seen.add(trackId)) {
+                String name = (String) row[1];
+                String artist = (String) row[2];
+                tracks.add(new String[] {trackId, name, artist});
+                texts.add(titleNormalizer.fold(name) + ' ' + titleNormalizer.fold(artist));
+            }
+        }
+        return new Library(List.copyOf(tracks), blocker.bucket(texts));
+    }
+
+    // id, name and artist of each distinct stored track, and their buckets; read only once built
+    private record Library(List<String[]> tracks, MinHashBlocker.Buckets buckets) {
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.tunemerge.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.tunemerge.model.SearchResult;
+
+/**
+ * Write stage of an export. Match results arrive out of order from the
+ * worker threads; they are put back in playlist order and every full chunk
+ * of {@link SpotifyService#MAX_URIS_PER_REQUEST} URIs is written while later
+ * items are still being searched. The target playlist is created with the
+ * first chunk, and chunks are written one after another at explicit positions.
+ * If a write fails, later chunks are not sent.
+ */
+public class PlaylistCommitter implements ExportService.MatchListener {
+    private static final Logger logger = LoggerFactory.getLogger(PlaylistCommitter.class);
+
+    private static final String TRACK_URI_PREFIX = "spotify:track:";
+    private static final String UNMATCHED = "";
+
+    private final SpotifyService spotifyService;
+    private final String spotifyId;
+    private final String playlistName;
+    private final String description;
+    private final Executor writeExecutor;
+
+    // completed items waiting for an earlier index, guarded by this
+    private final Map<Integer, String> completed = new HashMap<>();
+    private List<String> chunk = new ArrayList<>(SpotifyService.MAX_URIS_PER_REQUEST);
+    private int nextIndex;
+    private int submitted;
+    private CompletableFuture<Void> writes = CompletableFuture.completedFuture(null);
+
+    // set by the write chain, which runs one task at a time
+    private volatile String playlistId;
+    private volatile int written;
+
+    public PlaylistCommitter(SpotifyService spotifyService, String spotifyId, String playlistName,
+                             String description, Executor writeExecutor) {
+        this.spotifyService = spotifyService;
+        this.spotifyId = spotifyId;
+        this.playlistName = playlistName;
+        this.description = description;
+        this.writeExecutor = writeExecutor;
+    }
+
+    @Override
+    public synchronized void onItemMatched(int index, String videoTitle, SearchResult match) {
+        complete(index, match != null ? TRACK_URI_PREFIX + match.getId() : UNMATCHED);
+    }
+
+    @Override
+    public synchronized void onItemFailed(int index, String videoTitle, Throwable error) {
+        complete(index, UNMATCHED);
+    }
+
+    private void complete(int index, String uri) {
+        completed.put(index, uri);
+
+        String next;
+        while ((next = completed.remove(nextIndex)) != null) {
+            nextIndex++;
+            if (!next.isEmpty()) {
+                chunk.add(next);
+                if (chunk.size() == SpotifyService.MAX_URIS_PER_REQUEST) {
+                    submitChunk();
+                }
+            }
+        }
+    }
+
+    /**
+     * Write whatever is left once every item has been matched
+     * @return completes when all chunks are written, exceptionally if a write failed
+     */
+    public synchronized CompletableFuture<Void> finish() {
+        if (!completed.isEmpty()) {
+            logger.warn("Playlist {} finished with {} items out of order", playlistName, completed.size());
+        }
+        if (!chunk.isEmpty()) {
+            submitChunk();
+        }
+        return writes;
+    }
+
+    /** @return ID of the created playlist, null when nothing was written */
+    public String getPlaylistId() {
+        return playlistId;
+    }
+
+    public int getWritten() {
+        return written;
+    }
+
+    private void submitChunk() {
+        List<String> uris = chunk;
+        int position = submitted;
+        submitted += uris.size();
+        chunk = new ArrayList<>(SpotifyService.MAX_URIS_PER_REQUEST);
+        writes = writes.thenRunAsync(() -> write(uris, position), writeExecutor);
+    }
+
+    private void write(List<String> uris, int position) {
+        if (playlistId == null) {
+            try {
+                playlistId = spotifyService.createPlaylistAndGetId(spotifyId, playlistName, false, description);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            logger.info("Created Spotify playlist {} ({}) for user {}", playlistName, playlistId, spotifyId);
+        }
+        spotifyService.addTracksToPlaylist(playlistId, uris, position, spotifyId);
+        written = position + uris.size();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.tunemerge.service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.google.api.services.youtube.model.PlaylistItem;
+import com.google.api.services.youtube.model.PlaylistItemListResponse;
+
+/**
+ * Iterates over every page of a YouTube playlist. A background task follows
+ * nextPageToken and keeps up to prefetchDepth pages queued ahead of the
+ * consumer, so page N+1 is already on its way while page N is processed.
+ * Always close it, otherwise the background fetch keeps running.
+ */
+public class PlaylistItemPages implements Iterator<List<PlaylistItem>>, AutoCloseable {
+
+    @FunctionalInterface
+    public interface PageFetcher {
+        PlaylistItemListResponse fetch(String pageToken) throws IOException;
+    }
+
+    private static final Page END = new Page(Collections.emptyList(), null);
+
+    private final BlockingQueue<Page> pages;
+    private final Future<?> producer;
+    private Page next;
+    private boolean finished;
+
+    public PlaylistItemPages(PageFetcher fetcher, int prefetchDepth, ExecutorService executor) {
+        this.pages = new ArrayBlockingQueue<>(Math.max(1, prefetchDepth));
+        this.producer = executor.submit(() -> produce(fetcher));
+    }
+
+    private void produce(PageFetcher fetcher) {
+        try {
+            String pageToken = null;
+            do {
+                PlaylistItemListResponse response = fetcher.fetch(pageToken);
+                List<PlaylistItem> items = response.getItems() != null ? response.getItems() : Collections.emptyList();
+                pages.put(new Page(items, null));
+                pageToken = response.getNextPageToken();
+            } while (pageToken != null);
+            pages.put(END);
+        } catch (InterruptedException e) {
+            // closed by the consumer
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            try {
+                pages.put(new Page(null, e));
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (finished) {
+            return false;
+        }
+        if (next == null) {
+            try {
+                next = pages.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the next playlist page", e);
+            }
+        }
+        if (next.error != null) {
+            finished = true;
+            if (next.error instanceof IOException ioException) {
+                throw new UncheckedIOException(ioException);
+            }
+            throw (RuntimeException) next.error;
+        }
+        if (next == END) {
+            finished = true;
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public List<PlaylistItem> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<PlaylistItem> items = next.items;
+        next = null;
+        return items;
+    }
+
+    @Override
+    public void close() {
+        finished = true;
+        producer.cancel(true);
+    }
+
+    private static final class Page {
+        private final List<PlaylistItem> items;
+        private final Exception error;
+
+        private Page(List<PlaylistItem> items, Exception error) {
+            this.items = items;
+            this.error = error;
+        }
+    }
+}
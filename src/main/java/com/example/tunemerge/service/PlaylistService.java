@@ -2,15 +2,21 @@ package com.example.tunemerge.service;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.example.tunemerge.model.Playlist;
+import com.example.tunemerge.model.StalePlaylist;
 import com.example.tunemerge.model.User;
 import com.example.tunemerge.repository.PlaylistRepository;
 import com.fasterxml.jackson.databind.JsonNode;
@@ -42,47 +48,74 @@ public class PlaylistService extends BaseService<Playlist, Long> {
     }
 
     /**
-     * Save playlists to database from Spotify response body
+     * Save playlists from a Spotify response and find the ones whose tracks need
+     * re-ingesting. Stored playlists are looked up in one query, and a playlist
+     * is stale when it is new or its snapshot_id differs from the stored one.
      * @param playlistsJson Spotify response body in JSON format 
      * @param user User to associate with the playlists 
-     * @return List of saved playlists 
+     * @return playlists whose tracks changed since the last sync
      */
-    public List<Playlist> savePlaylistsFromSpotifyResponse(String playlistsJson, User user) {
+    @Transactional
+    public List<StalePlaylist> syncPlaylistsFromSpotifyResponse(String playlistsJson, User user) {
+        JsonNode items;
         try {
-            JsonNode root = objectMapper.readTree(playlistsJson);
-            JsonNode items = root.get("items");
-            List<Playlist> savedPlaylists = new ArrayList<>();
-
-            if (items != null && items.isArray()) {
-                for (JsonNode item : items) {
-                    String spotifyId = item.get("id").asText();
-                    
-                    // Check if playlist already exists
-                    Optional<Playlist> existingPlaylist = getPlaylistBySpotifyId(spotifyId);
-                    if (existingPlaylist.isPresent()) {
-                        logger.debug("Playlist with Spotify ID {} already exists", spotifyId);
-                        continue;
-                    }
+            items = objectMapper.readTree(playlistsJson).get("items");
+        } catch (IOException e) {
+            logger.error("Error parsing Spotify playlists JSON: {}", e.getMessage());
+            throw new RuntimeException("Failed to parse Spotify playlists response", e);
+        }
+        List<StalePlaylist> stalePlaylists = new ArrayList<>();
+        if (items == null || !items.isArray() || items.isEmpty()) {
+            return stalePlaylists;
+        }
 
-                    Playlist playlist = new Playlist();
-                    playlist.setSpotifyId(spotifyId);
-                    playlist.setName(item.get("name").asText());
-                    playlist.setUser(user);
+        List<String> spotifyIds = new ArrayList<>();
+        for (JsonNode item : items) {
+            spotifyIds.add(item.path("id").asText());
+        }
+        Map<String, Playlist> existing = new HashMap<>();
+        for (Playlist playlist : playlistRepository.findBySpotifyIdIn(spotifyIds)) {
+            existing.put(playlist.getSpotifyId(), playlist);
+        }
 
-                    try {
-                        Playlist savedPlaylist = playlistRepository.save(playlist);
-                        savedPlaylists.add(savedPlaylist);
-                        logger.info("Saved playlist: {} with Spotify ID: {}", playlist.getName(), playlist.getSpotifyId());
-                    } catch (Exception e) {
-                        logger.error("Error saving playlist with Spotify ID {}: {}", spotifyId, e.getMessage());
-                    }
-                }
+        List<Playlist> newPlaylists = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (JsonNode item : items) {
+            String spotifyId = item.path("id").asText();
+            if (!seen.add(spotifyId)) {
+                continue;
             }
+            String name = item.path("name").asText();
+            String snapshotId = item.path("snapshot_id").asText(null);
 
-            return savedPlaylists;
-        } catch (IOException e) {
-            logger.error("Error parsing Spotify playlists JSON: {}", e.getMessage());
-            throw new RuntimeException("Failed to parse Spotify playlists response", e);
+            Playlist playlist = existing.get(spotifyId);
+            if (playlist == null) {
+                playlist = new Playlist();
+                playlist.setSpotifyId(spotifyId);
+                playlist.setName(name);
+                playlist.setUser(user);
+                newPlaylists.add(playlist);
+            } else if (snapshotId != null && snapshotId.equals(playlist.getSnapshotId())) {
+                logger.debug("Playlist with Spotify ID {} is unchanged", spotifyId);
+                continue;
+            } else if (!name.equals(playlist.getName())) {
+                playlist.setName(name);
+            }
+            stalePlaylists.add(new StalePlaylist(playlist, snapshotId));
         }
+
+        playlistRepository.saveAll(newPlaylists);
+        logger.info("Playlist sync for user {}: {} new, {} stale, {} unchanged", user.getSpotifyId(),
+            newPlaylists.size(), stalePlaylists.size() - newPlaylists.size(), items.size() - stalePlaylists.size());
+        return stalePlaylists;
+    }
+
+    /**
+     * Record the snapshot whose tracks are now stored, so the next sync skips the playlist
+     */
+    @Transactional
+    public void markSynced(Playlist playlist, String snapshotId) {
+        playlist.setSnapshotId(snapshotId);
+        playlistRepository.updateSnapshotId(playlist.getId(), snapshotId);
     }
 }
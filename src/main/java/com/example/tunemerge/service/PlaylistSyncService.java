@@ -0,0 +1,100 @@
+package com.example.tunemerge.service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import com.example.tunemerge.model.StalePlaylist;
+import com.example.tunemerge.model.TrackRecord;
+import com.example.tunemerge.model.User;
+
+/**
+ * Incremental sync of a user's Spotify library. Only playlists whose
+ * snapshot_id changed since the last sync have their tracks fetched again.
+ */
+@Service
+public class PlaylistSyncService {
+    private static final Logger logger = LoggerFactory.getLogger(PlaylistSyncService.class);
+
+    private final PlaylistService playlistService;
+    private final TrackService trackService;
+    private final SpotifyService spotifyService;
+    private final UserService userService;
+    private final OverlapService overlapService;
+    private final ExecutorService syncExecutor;
+
+    // newest unsynced playlists response per user, a present key means a sync is queued or running
+    private final ConcurrentMap<String, String> pending = new ConcurrentHashMap<>();
+
+    public PlaylistSyncService(PlaylistService playlistService, TrackService trackService, SpotifyService spotifyService,
+                               UserService userService, OverlapService overlapService,
+                               @Qualifier("playlistSyncExecutor") ExecutorService syncExecutor) {
+        this.playlistService = playlistService;
+        this.trackService = trackService;
+        this.spotifyService = spotifyService;
+        this.userService = userService;
+        this.overlapService = overlapService;
+        this.syncExecutor = syncExecutor;
+    }
+
+    /**
+     * Sync in the background. Responses that arrive while a sync of the same
+     * user runs are coalesced, only the newest one is synced afterwards.
+     * @param playlistsJson Spotify /me/playlists response body
+     * @param spotifyId owner of the playlists
+     */
+    public void syncInBackground(String playlistsJson, String spotifyId) {
+        if (pending.put(spotifyId, playlistsJson) == null) {
+            syncExecutor.execute(() -> drain(spotifyId));
+        }
+    }
+
+    private void drain(String spotifyId) {
+        String playlistsJson = pending.get(spotifyId);
+        try {
+            Optional<User> user = userService.getUserBySpotifyId(spotifyId);
+            if (user.isPresent()) {
+                syncFromSpotifyResponse(playlistsJson, user.get());
+            }
+        } catch (Exception e) {
+            logger.error("Error syncing playlists of {}: {}", spotifyId, e.getMessage());
+        } finally {
+            // a newer response replaced ours while we were syncing
+            if (!pending.remove(spotifyId, playlistsJson)) {
+                syncExecutor.execute(() -> drain(spotifyId));
+            }
+        }
+    }
+
+    /**
+     * Sync playlists and re-ingest tracks of the changed ones
+     * @param playlistsJson Spotify /me/playlists response body
+     * @param user owner of the playlists
+     */
+    public void syncFromSpotifyResponse(String playlistsJson, User user) {
+        List<StalePlaylist> stalePlaylists = playlistService.syncPlaylistsFromSpotifyResponse(playlistsJson, user);
+
+        for (StalePlaylist stale : stalePlaylists) {
+            String playlistId = stale.getPlaylist().getSpotifyId();
+            try {
+                List<TrackRecord> tracks = spotifyService.getAllPlaylistTracks(playlistId, user.getSpotifyId());
+                trackService.syncTracks(tracks, stale.getPlaylist());
+                // only recorded after the tracks are stored, a failed ingest is retried next time
+                playlistService.markSynced(stale.getPlaylist(), stale.getSnapshotId());
+            } catch (Exception e) {
+                logger.error("Error syncing tracks of playlist {}: {}", playlistId, e.getMessage());
+            }
+        }
+        if (!stalePlaylists.isEmpty()) {
+            // the next overlap report rebuckets the library with the new tracks
+            overlapService.invalidate(user.getSpotifyId());
+        }
+    }
+}
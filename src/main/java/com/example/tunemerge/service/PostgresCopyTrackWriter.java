@@ -0,0 +1,134 @@
+package com.example.tunemerge.service;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.hibernate.Session;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.springframework.stereotype.Component;
+
+import com.example.tunemerge.model.Track;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+/**
+ * Streams tracks into a temporary staging table with COPY FROM STDIN and
+ * moves them into tracks with one INSERT ... SELECT, so a playlist costs a
+ * handful of statements however many tracks it has. PostgreSQL only.
+ */
+@Component("postgresCopy")
+public class PostgresCopyTrackWriter implements TrackWriter {
+
+    // CSV is sent to the server in chunks of about this many chars
+    private static final int COPY_CHUNK = 64 * 1024;
+
+    // session scoped, emptied by every commit; column types follow tracks
+    private static final String CREATE_STAGING =
+        "CREATE TEMP TABLE IF NOT EXISTS track_staging (LIKE tracks INCLUDING DEFAULTS) ON COMMIT DELETE ROWS";
+
+    private static final String COPY_STAGING =
+        "COPY track_staging (id, name, artist, album, spotify_id, playlist_id) FROM STDIN (FORMAT csv)";
+
+    // a concurrent sync may already have stored some of the rows
+    private static final String MERGE_STAGING =
+        "INSERT INTO tracks (id, name, artist, album, spotify_id, playlist_id) "
+            + "SELECT id, name, artist, album, spotify_id, playlist_id FROM track_staging "
+            + "ON CONFLICT (playlist_id, spotify_id) DO NOTHING RETURNING spotify_id";
+
+    private final TrackIdAllocator idAllocator;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public PostgresCopyTrackWriter(TrackIdAllocator idAllocator) {
+        this.idAllocator = idAllocator;
+    }
+
+    @Override
+    public List<Track> insert(List<Track> tracks) {
+        if (tracks.isEmpty()) {
+            return tracks;
+        }
+        // the merge reads the tables directly, earlier changes of the transaction have to be written first
+        entityManager.flush();
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute(CREATE_STAGING);
+                // left over from an earlier call in the same transaction
+                statement.execute("TRUNCATE track_staging");
+                idAllocator.assignIds(connection, tracks);
+                copy(connection, tracks);
+
+                // RETURNING leaves out the rows skipped by ON CONFLICT
+                Set<String> insertedIds = new HashSet<>();
+                try (ResultSet inserted = statement.executeQuery(MERGE_STAGING)) {
+                    while (inserted.next()) {
+                        insertedIds.add(inserted.getString(1));
+                    }
+                }
+                if (insertedIds.size() == tracks.size()) {
+                    return tracks;
+                }
+                List<Track> insertedTracks = new ArrayList<>(insertedIds.size());
+                for (Track track : tracks) {
+                    if (insertedIds.contains(track.getSpotifyId())) {
+                        insertedTracks.add(track);
+                    }
+                }
+                return insertedTracks;
+            }
+        });
+    }
+
+    private static void copy(Connection connection, List<Track> tracks) throws SQLException {
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING);
+        try {
+            StringBuilder csv = new StringBuilder(COPY_CHUNK + 1024);
+            for (Track track : tracks) {
+                csv.append(track.getId()).append(',');
+                appendField(csv, track.getName()).append(',');
+                appendField(csv, track.getArtist()).append(',');
+                appendField(csv, track.getAlbum()).append(',');
+                appendField(csv, track.getSpotifyId()).append(',');
+                csv.append(track.getPlaylist().getId()).append('\n');
+                if (csv.length() >= COPY_CHUNK) {
+                    write(copyIn, csv);
+                }
+            }
+            write(copyIn, csv);
+            copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static void write(CopyIn copyIn, StringBuilder csv) throws SQLException {
+        byte[] bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+        copyIn.writeToCopy(bytes, 0, bytes.length);
+        csv.setLength(0);
+    }
+
+    // always quoted, so commas, quotes and line breaks in titles survive
+    private static StringBuilder appendField(StringBuilder csv, String value) {
+        csv.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                csv.append('"');
+            }
+            csv.append(c);
+        }
+        return csv.append('"');
+    }
+}
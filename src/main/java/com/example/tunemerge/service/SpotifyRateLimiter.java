@@ -0,0 +1,289 @@
+package com.example.tunemerge.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Gate in front of every Spotify Web API call, shared by all users of the app.
+ * <ul>
+ * <li>A token bucket caps the app-wide request rate.</li>
+ * <li>An AIMD concurrency limit grows by one per window of fast successes and
+ * halves on 429s, 5xx responses, timeouts or slow responses.</li>
+ * <li>Each user gets at most an equal share of that limit while others are
+ * waiting, so one large export cannot starve the rest.</li>
+ * <li>A 429 pauses all calls for its Retry-After, after which the call is retried.</li>
+ * </ul>
+ */
+@Component
+public class SpotifyRateLimiter {
+    private static final Logger logger = LoggerFactory.getLogger(SpotifyRateLimiter.class);
+
+    private static final long DEFAULT_RETRY_AFTER_MILLIS = 1000;
+    private static final long DECREASE_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final double permitsPerNano;
+    private final double burst;
+    private final int minConcurrency;
+    private final int maxConcurrency;
+    private final long latencyTargetNanos;
+    private final int maxRetries;
+    private final UpstreamMetrics upstreamMetrics;
+    private final Timer waitTimer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    // all guarded by lock
+    private double tokens;
+    private long lastRefill = System.nanoTime();
+    private long pausedUntil = System.nanoTime();
+    // starts one interval back so the first 429 or error after startup already halves the limit
+    private long lastDecrease = System.nanoTime() - DECREASE_INTERVAL_NANOS;
+    private int limit;
+    private int successesSinceIncrease;
+    private int inFlight;
+    private final Map<String, UserState> users = new HashMap<>();
+
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    public SpotifyRateLimiter(@Value("${spotify.rate-limit.requests-per-second:20}") double requestsPerSecond,
+                              @Value("${spotify.rate-limit.burst:20}") int burst,
+                              @Value("${spotify.rate-limit.initial-concurrency:8}") int initialConcurrency,
+                              @Value("${spotify.rate-limit.min-concurrency:1}") int minConcurrency,
+                              @Value("${spotify.rate-limit.max-concurrency:32}") int maxConcurrency,
+                              @Value("${spotify.rate-limit.latency-target:2s}") Duration latencyTarget,
+                              @Value("${spotify.rate-limit.max-retries:3}") int maxRetries,
+                              UpstreamMetrics upstreamMetrics,
+                              MeterRegistry meterRegistry) {
+        this.permitsPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+        this.tokens = burst;
+        this.minConcurrency = minConcurrency;
+        this.maxConcurrency = maxConcurrency;
+        this.limit = Math.max(minConcurrency, Math.min(initialConcurrency, maxConcurrency));
+        this.latencyTargetNanos = latencyTarget.toNanos();
+        this.maxRetries = maxRetries;
+        this.upstreamMetrics = upstreamMetrics;
+        this.waitTimer = Timer.builder("tunemerge.spotify.limiter.wait")
+            .description("Time Spotify calls spend waiting for the rate limiter")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        Gauge.builder("tunemerge.spotify.limiter.concurrency", this, limiter -> limiter.getStats().get("concurrencyLimit"))
+            .register(meterRegistry);
+        Gauge.builder("tunemerge.spotify.limiter.in_flight", this, limiter -> limiter.getStats().get("inFlight"))
+            .register(meterRegistry);
+    }
+
+    /**
+     * Run one Spotify call under the limiter, retrying it after a 429
+     * @param spotifyId user the call is made for, null for calls outside a user session
+     * @param endpoint short name of the API endpoint, used as metric tag
+     * @param call the request, throwing RestTemplate's HTTP exceptions on error statuses
+     * @throws HttpClientErrorException.TooManyRequests when still throttled after the last retry
+     */
+    public <T> T execute(String spotifyId, String endpoint, Supplier<T> call) {
+        String user = spotifyId != null ? spotifyId : "";
+        for (int attempt = 0; ; attempt++) {
+            long waitStart = System.nanoTime();
+            acquire(user);
+            long start = System.nanoTime();
+            waitTimer.record(start - waitStart, TimeUnit.NANOSECONDS);
+            try {
+                T result = upstreamMetrics.record(UpstreamMetrics.SPOTIFY, endpoint, call::get);
+                onSuccess(System.nanoTime() - start);
+                return result;
+            } catch (HttpClientErrorException.TooManyRequests e) {
+                throttled.incrementAndGet();
+                long retryAfter = retryAfterMillis(e.getResponseHeaders());
+                onThrottled(retryAfter);
+                if (attempt >= maxRetries) {
+                    throw e;
+                }
+                retries.incrementAndGet();
+                logger.warn("Spotify throttled a call for {}, retrying in {} ms", user, retryAfter);
+            } catch (HttpServerErrorException | ResourceAccessException e) {
+                errors.incrementAndGet();
+                onError();
+                throw e;
+            } finally {
+                release(user);
+            }
+        }
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        lock.lock();
+        try {
+            stats.put("concurrencyLimit", (long) limit);
+            stats.put("inFlight", (long) inFlight);
+            stats.put("activeUsers", (long) users.size());
+            stats.put("pausedForMillis", Math.max(0, TimeUnit.NANOSECONDS.toMillis(pausedUntil - System.nanoTime())));
+        } finally {
+            lock.unlock();
+        }
+        stats.put("throttled", throttled.get());
+        stats.put("retries", retries.get());
+        stats.put("errors", errors.get());
+        return stats;
+    }
+
+    private void acquire(String user) {
+        lock.lock();
+        try {
+            UserState state = users.computeIfAbsent(user, u -> new UserState());
+            state.waiting++;
+            try {
+                while (true) {
+                    long now = System.nanoTime();
+                    long wait = pausedUntil - now;
+                    if (wait <= 0 && (inFlight >= limit || state.inFlight >= fairShare())) {
+                        wait = Long.MAX_VALUE;
+                    }
+                    if (wait <= 0) {
+                        refill(now);
+                        if (tokens >= 1) {
+                            tokens -= 1;
+                            break;
+                        }
+                        wait = (long) Math.ceil((1 - tokens) / permitsPerNano);
+                    }
+                    if (wait == Long.MAX_VALUE) {
+                        changed.await();
+                    } else {
+                        changed.awaitNanos(wait);
+                    }
+                }
+                state.inFlight++;
+                inFlight++;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for a Spotify request slot", e);
+            } finally {
+                state.waiting--;
+                if (state.isIdle()) {
+                    users.remove(user);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release(String user) {
+        lock.lock();
+        try {
+            inFlight--;
+            UserState state = users.get(user);
+            if (state != null) {
+                state.inFlight--;
+                if (state.isIdle()) {
+                    users.remove(user);
+                }
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // with several users waiting each gets an equal slice of the limit, a lone user gets all of it
+    private int fairShare() {
+        return Math.max(1, (limit + users.size() - 1) / users.size());
+    }
+
+    private void refill(long now) {
+        tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerNano);
+        lastRefill = now;
+    }
+
+    private void onSuccess(long latencyNanos) {
+        if (latencyNanos > latencyTargetNanos) {
+            onError();
+            return;
+        }
+        lock.lock();
+        try {
+            if (++successesSinceIncrease >= limit && limit < maxConcurrency) {
+                limit++;
+                successesSinceIncrease = 0;
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onThrottled(long retryAfterMillis) {
+        lock.lock();
+        try {
+            pausedUntil = Math.max(pausedUntil, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryAfterMillis));
+            decrease();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onError() {
+        lock.lock();
+        try {
+            decrease();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // calls already in flight when the limit drops report together, only the first one halves it
+    private void decrease() {
+        long now = System.nanoTime();
+        if (now - lastDecrease >= DECREASE_INTERVAL_NANOS) {
+            limit = Math.max(minConcurrency, limit / 2);
+            lastDecrease = now;
+            logger.info("Spotify concurrency limit lowered to {}", limit);
+        }
+        successesSinceIncrease = 0;
+    }
+
+    private static long retryAfterMillis(HttpHeaders headers) {
+        String retryAfter = headers != null ? headers.getFirst(HttpHeaders.RETRY_AFTER) : null;
+        if (retryAfter == null) {
+            return DEFAULT_RETRY_AFTER_MILLIS;
+        }
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_RETRY_AFTER_MILLIS;
+        }
+    }
+
+    private static class UserState {
+        private int inFlight;
+        private int waiting;
+
+        boolean isIdle() {
+            return inFlight == 0 && waiting == 0;
+        }
+    }
+}
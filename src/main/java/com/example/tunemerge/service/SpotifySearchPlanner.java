@@ -0,0 +1,157 @@
+package com.example.tunemerge.service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.example.tunemerge.model.SearchResult;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Searches Spotify for a track parsed from a video title with a list of
+ * queries from most to least specific. Every returned candidate is scored,
+ * with its length against the video's when that is known, and the plan stops
+ * at the first query whose best candidate reaches match.confident-score.
+ * Search calls per lookup are recorded by the strategy that found the match,
+ * so the order can be tuned with match.search-strategies.
+ */
+@Service
+public class SpotifySearchPlanner {
+    private static final Logger logger = LoggerFactory.getLogger(SpotifySearchPlanner.class);
+
+    public enum Strategy {
+        /** track:"title" artist:"artist", needs an artist */
+        EXACT,
+        /** title and artist as free text, needs an artist */
+        RELAXED,
+        /** the title alone */
+        TITLE_ONLY
+    }
+
+    // share of the score taken by the length, and the difference at which it counts for nothing
+    private static final double DURATION_WEIGHT = 0.2;
+    private static final long DURATION_TOLERANCE_MS = 60_000;
+
+    private final SpotifyService spotifyService;
+    private final MatchScorer matchScorer;
+    private final List<Strategy> strategies = new ArrayList<>();
+    private final double confidentScore;
+    private final MeterRegistry meterRegistry;
+    private final ObjectMapper jsonMapper = new ObjectMapper();
+
+    public SpotifySearchPlanner(SpotifyService spotifyService,
+                                Map<String, MatchScorer> matchScorers,
+                                @Value("${match.scorer:editDistance}") String scorerName,
+                                @Value("${match.search-strategies:EXACT,RELAXED,TITLE_ONLY}") String[] strategyNames,
+                                @Value("${match.confident-score:0.85}") double confidentScore,
+                                MeterRegistry meterRegistry) {
+        this.spotifyService = spotifyService;
+        this.matchScorer = matchScorers.get(scorerName);
+        if (this.matchScorer == null) {
+            throw new IllegalArgumentException("Unknown match.scorer " + scorerName + ", expected one of " + matchScorers.keySet());
+        }
+        for (String name : strategyNames) {
+            strategies.add(Strategy.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+        }
+        this.confidentScore = confidentScore;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Find the best Spotify track for a title and artist parsed from a video title
+     * @param durationMs length of the video, null when unknown
+     * @return the best scoring candidate of all queries run, or null when none reached MATCH_THRESHOLD
+     * @throws IOException when a search response cannot be parsed
+     */
+    public SearchResult findBestMatch(String title, String artist, Long durationMs, String spotifyId) throws IOException {
+        SearchResult best = null;
+        Strategy bestStrategy = null;
+        String previousQuery = null;
+        int calls = 0;
+        for (Strategy strategy : strategies) {
+            String query = query(strategy, title, artist);
+            if (query == null || query.equals(previousQuery)) {
+                continue;
+            }
+            previousQuery = query;
+
+            ResponseEntity<String> response = spotifyService.searchTracks(query, spotifyId);
+            calls++;
+            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
+                continue;
+            }
+            SearchResult candidate = bestCandidate(jsonMapper.readTree(response.getBody()).path("tracks").path("items"),
+                title, artist, durationMs, best != null ? best.getSimilarity() : MatchScorer.MATCH_THRESHOLD);
+            if (candidate != null) {
+                best = candidate;
+                bestStrategy = strategy;
+                if (best.getSimilarity() >= confidentScore) {
+                    break;
+                }
+            }
+        }
+
+        DistributionSummary.builder("tunemerge.match.search_calls")
+            .description("Spotify searches per track lookup, by the strategy that found the match")
+            .tag("strategy", bestStrategy != null ? bestStrategy.name() : "none")
+            .register(meterRegistry)
+            .record(calls);
+        logger.debug("Searched '{}' by '{}' with {} calls, best {} via {}", title, artist, calls, best, bestStrategy);
+        return best;
+    }
+
+    // candidate scoring above minScore, or null
+    private SearchResult bestCandidate(JsonNode tracks, String title, String artist, Long durationMs, double minScore) {
+        SearchResult best = null;
+        for (JsonNode track : tracks) {
+            String name = track.path("name").asText();
+            String trackArtist = track.path("artists").path(0).path("name").asText();
+            long trackDurationMs = track.path("duration_ms").asLong(0);
+
+            double score;
+            if (durationMs != null && durationMs > 0 && trackDurationMs > 0) {
+                // the title has to make up for the length at best matching perfectly
+                double minTitleScore = Math.max(0, (minScore - DURATION_WEIGHT) / (1 - DURATION_WEIGHT));
+                double titleScore = matchScorer.score(title, artist, name, trackArtist, minTitleScore);
+                double durationScore = Math.max(0, 1 - (double) Math.abs(durationMs - trackDurationMs) / DURATION_TOLERANCE_MS);
+                score = titleScore * (1 - DURATION_WEIGHT) + durationScore * DURATION_WEIGHT;
+            } else {
+                score = matchScorer.score(title, artist, name, trackArtist, minScore);
+            }
+
+            if (score > minScore) {
+                best = new SearchResult(track.path("id").asText(), name, trackArtist, score);
+                minScore = score;
+            }
+        }
+        return best;
+    }
+
+    private static String query(Strategy strategy, String title, String artist) {
+        boolean hasArtist = artist != null && !artist.isBlank();
+        switch (strategy) {
+            case EXACT:
+                return hasArtist ? "track:\"" + unquoted(title) + "\" artist:\"" + unquoted(artist) + "\"" : null;
+            case RELAXED:
+                return hasArtist ? title + " " + artist : null;
+            default:
+                return title;
+        }
+    }
+
+    private static String unquoted(String value) {
+        return value.replace("\"", "");
+    }
+}
@@ -1,16 +1,22 @@
 package com.example.tunemerge.service;
 
+import java.io.IOException;
 import java.util.Base64;
 import java.util.Map;
 import java.util.UUID;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
@@ -19,16 +25,21 @@ import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.stereotype.Service;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.DefaultResponseErrorHandler;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
 import com.example.tunemerge.model.SpotifyTokenResponse;
 import com.example.tunemerge.model.User;
-import com.example.tunemerge.model.SearchResult;
-import com.fasterxml.jackson.databind.JsonNode;
+import com.example.tunemerge.model.TrackPage;
+import com.example.tunemerge.model.TrackRecord;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 @Service
@@ -51,13 +62,46 @@ public class SpotifyService {
     private final String BASE_URL = "https://api.spotify.com/v1";
     private final String AUTH_URL = "https://accounts.spotify.com/authorize";
     private final String TOKEN_URL = "https://accounts.spotify.com/api/token";
+    private static final int TRACK_PAGE_SIZE = 100;
+    private static final String TRACK_PAGE_FIELDS = "total,next,items(track(id,uri,name,duration_ms,artists(name),album(name)))";
+
+    /** Spotify accepts at most this many URIs per add-tracks request */
+    public static final int MAX_URIS_PER_REQUEST = 100;
+
+    // client headers passed on by the streaming pass-through calls
+    private static final String[] FORWARDED_REQUEST_HEADERS = {
+        HttpHeaders.ACCEPT_ENCODING, HttpHeaders.IF_NONE_MATCH, HttpHeaders.ACCEPT_LANGUAGE
+    };
+
     private final RestTemplate restTemplate;
+    private final ClientHttpRequestFactory streamingRequestFactory;
+    private final DefaultResponseErrorHandler errorHandler = new DefaultResponseErrorHandler();
+    private final ObjectMapper jsonMapper = new ObjectMapper();
 
     private final UserService userService;
-
-    public SpotifyService(RestTemplate restTemplate, UserService userService) {
+    private final SpotifyTokenService tokenService;
+    private final SpotifyRateLimiter rateLimiter;
+    private final UpstreamMetrics upstreamMetrics;
+    private final ConditionalResponseCache responseCache;
+    private final SpotifyTrackPageParser trackPageParser;
+    private final ExecutorService pageExecutor;
+
+    public SpotifyService(RestTemplate restTemplate,
+                          @Qualifier("streamingRequestFactory") ClientHttpRequestFactory streamingRequestFactory,
+                          UserService userService, SpotifyTokenService tokenService,
+                          SpotifyRateLimiter rateLimiter, UpstreamMetrics upstreamMetrics,
+                          ConditionalResponseCache responseCache,
+                          SpotifyTrackPageParser trackPageParser,
+                          @Qualifier("spotifyPageExecutor") ExecutorService pageExecutor) {
         this.restTemplate = restTemplate;
+        this.streamingRequestFactory = streamingRequestFactory;
         this.userService = userService;
+        this.tokenService = tokenService;
+        this.rateLimiter = rateLimiter;
+        this.upstreamMetrics = upstreamMetrics;
+        this.responseCache = responseCache;
+        this.trackPageParser = trackPageParser;
+        this.pageExecutor = pageExecutor;
     }
 
     public String getAuthorizationUrl() {
@@ -87,7 +131,8 @@ public class SpotifyService {
         HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(body, headers);
 
         try {
-            ResponseEntity<SpotifyTokenResponse> response = restTemplate.postForEntity(TOKEN_URL, request, SpotifyTokenResponse.class);
+            ResponseEntity<SpotifyTokenResponse> response = upstreamMetrics.record(UpstreamMetrics.SPOTIFY, "token-exchange",
+                () -> restTemplate.postForEntity(TOKEN_URL, request, SpotifyTokenResponse.class));
             logger.info("Token exchange response status: {}", response.getStatusCode());
 
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
@@ -96,14 +141,15 @@ public class SpotifyService {
                 
                 HttpHeaders profileHeaders = new HttpHeaders();
                 profileHeaders.setBearerAuth(tokenResponse.getAccessToken());
-                HttpEntity<String> profileRequest = new HttpEntity<>("parameters", profileHeaders);
+                HttpEntity<String> profileRequest = new HttpEntity<>(profileHeaders);
                 
-                ResponseEntity<Map<String, Object>> profileResponse = restTemplate.exchange(
+                // the user is not known yet, the call counts against the shared slot
+                ResponseEntity<Map<String, Object>> profileResponse = rateLimiter.execute(null, "me", () -> restTemplate.exchange(
                     BASE_URL + "/me",
                     HttpMethod.GET,
                     profileRequest,
                     new ParameterizedTypeReference<Map<String, Object>>() {}
-                );
+                ));
                 logger.info("User profile response status: {}", profileResponse.getStatusCode());
 
                 if (profileResponse.getBody() != null) {
@@ -123,6 +169,7 @@ public class SpotifyService {
                     user.setTokenExpirationTime(System.currentTimeMillis() + (tokenResponse.getExpiresIn() * 1000));
 
                     userService.createUser(user);
+                    tokenService.store(user);
                     logger.info("User information saved/updated in the database");
                     
                     return spotifyId;
@@ -141,73 +188,152 @@ public class SpotifyService {
     }
 
     public String getAccessTokenForUser(String spotifyId) {
-        User user = userService.getUserBySpotifyId(spotifyId)
-            .orElseThrow(() -> new RuntimeException("User not found"));
-
-        if (System.currentTimeMillis() > user.getTokenExpirationTime()) {
-            refreshAccessToken(user);
-        }
-        return user.getAccessToken();
+        return tokenService.getAccessToken(spotifyId);
     }
 
-    private void refreshAccessToken(User user) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
-        headers.setBasicAuth(Base64.getEncoder().encodeToString((clientId + ":" + clientSecret).getBytes()));
+    /** Buffered /me/playlists, revalidated through the ETag cache, for callers that need the body */
+    public ResponseEntity<String> getUserPlaylists(String spotifyId, String accessToken) {
+        String url = BASE_URL + "/me/playlists";
+        return getConditional(spotifyId, "playlists", url, accessToken);
+    }
 
-        MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
-        body.add("grant_type", "refresh_token");
-        body.add("refresh_token", user.getRefreshToken());
+    /** Streaming /me/playlists, see openGet */
+    public ClientHttpResponse openUserPlaylists(String spotifyId, HttpHeaders clientHeaders) {
+        return openGet(spotifyId, "playlists", BASE_URL + "/me/playlists", clientHeaders);
+    }
 
-        HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(body, headers);
+    /** Streaming /playlists/{id}/tracks, see openGet */
+    public ClientHttpResponse openPlaylistTracks(String playlistId, String spotifyId, HttpHeaders clientHeaders) {
+        String url = BASE_URL + "/playlists/" + playlistId + "/tracks";
+        logger.info("Fetching tracks from URL: {}", url);
+        return openGet(spotifyId, "playlist-tracks", url, clientHeaders);
+    }
 
-        ResponseEntity<SpotifyTokenResponse> response = restTemplate.postForEntity(TOKEN_URL, request, SpotifyTokenResponse.class);
+    /** Buffered /me, revalidated through the ETag cache, for callers that need the body */
+    public ResponseEntity<String> getUserProfile(String spotifyId, String accessToken) {
+        String url = BASE_URL + "/me";
+        return getConditional(spotifyId, "me", url, accessToken);
+    }
 
-        if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-            SpotifyTokenResponse tokenResponse = response.getBody();
-            user.setAccessToken(tokenResponse.getAccessToken());
-            user.setTokenExpirationTime(System.currentTimeMillis() + (tokenResponse.getExpiresIn() * 1000));
-            if (tokenResponse.getRefreshToken() != null) {
-                user.setRefreshToken(tokenResponse.getRefreshToken());
-            }
-            userService.updateUser(user);
-        } else {
-            throw new RuntimeException("Failed to refresh access token");
-        }
+    /** Streaming /me, see openGet */
+    public ClientHttpResponse openUserProfile(String spotifyId, HttpHeaders clientHeaders) {
+        return openGet(spotifyId, "me", BASE_URL + "/me", clientHeaders);
     }
 
-    public ResponseEntity<String> getUserPlaylists(String spotifyId) {
+    /**
+     * GET that revalidates a previously stored body with If-None-Match. A 304
+     * is answered with the stored body as a 200, so callers never see it.
+     */
+    private ResponseEntity<String> getConditional(String spotifyId, String endpoint, String url, String accessToken) {
+        String cacheKey = UpstreamMetrics.SPOTIFY + " " + spotifyId + " " + url;
+        ConditionalResponseCache.Entry<String> cached = responseCache.get(cacheKey);
+
         HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(getAccessTokenForUser(spotifyId));
-        HttpEntity<String> entity = new HttpEntity<>("parameters", headers);
+        headers.setBearerAuth(accessToken);
+        if (cached != null) {
+            headers.setIfNoneMatch(cached.getEtag());
+        }
+        HttpEntity<String> entity = new HttpEntity<>(headers);
+
+        ResponseEntity<String> response = rateLimiter.execute(spotifyId, endpoint,
+            () -> restTemplate.exchange(url, HttpMethod.GET, entity, String.class));
+        if (response.getStatusCode() == HttpStatus.NOT_MODIFIED && cached != null) {
+            responseCache.recordNotModified(UpstreamMetrics.SPOTIFY);
+            return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(cached.getEtag())
+                .body(cached.getBody());
+        }
+        if (response.getStatusCode().is2xxSuccessful()) {
+            responseCache.put(cacheKey, response.getHeaders().getETag(), response.getBody());
+        }
+        return response;
+    }
 
-        String url = BASE_URL + "/me/playlists";
-        return restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+    /**
+     * GET whose body is left unread for the caller to stream on, still
+     * compressed when the client accepted that. The rate limiter covers the
+     * call up to the response headers, so a slow client does not hold a slot.
+     * @param clientHeaders headers of the incoming request, FORWARDED_REQUEST_HEADERS are passed on
+     * @return the open upstream response, to be closed by the caller; 2xx or 304
+     * @throws org.springframework.web.client.RestClientResponseException on error statuses, with the body read
+     */
+    private ClientHttpResponse openGet(String spotifyId, String endpoint, String url, HttpHeaders clientHeaders) {
+        String accessToken = getAccessTokenForUser(spotifyId);
+        URI uri = URI.create(url);
+        return rateLimiter.execute(spotifyId, endpoint, () -> {
+            try {
+                ClientHttpRequest request = streamingRequestFactory.createRequest(uri, HttpMethod.GET);
+                request.getHeaders().setBearerAuth(accessToken);
+                for (String name : FORWARDED_REQUEST_HEADERS) {
+                    List<String> values = clientHeaders.get(name);
+                    if (values != null) {
+                        request.getHeaders().put(name, values);
+                    }
+                }
+                ClientHttpResponse response = request.execute();
+                if (errorHandler.hasError(response)) {
+                    // throws the same exceptions as RestTemplate, which the limiter reacts to
+                    try (response) {
+                        errorHandler.handleError(uri, HttpMethod.GET, response);
+                    }
+                }
+                return response;
+            } catch (IOException e) {
+                throw new ResourceAccessException("I/O error on GET request for \"" + uri + "\": " + e.getMessage(), e);
+            }
+        });
     }
 
-    public ResponseEntity<String> getPlaylistTracks(String playlistId, String spotifyId) {
-        HttpHeaders headers = new HttpHeaders();
+    /**
+     * Fetch every track of a playlist. The first page tells us the total, the
+     * remaining pages are then requested concurrently by offset and decoded
+     * with the streaming parser.
+     * @param playlistId Spotify playlist ID
+     * @param spotifyId Spotify user whose token is used
+     * @return all tracks in playlist order
+     */
+    public List<TrackRecord> getAllPlaylistTracks(String playlistId, String spotifyId) {
         String accessToken = getAccessTokenForUser(spotifyId);
-        headers.setBearerAuth(accessToken);
-        HttpEntity<String> entity = new HttpEntity<>("parameters", headers);
+        String pageUrl = BASE_URL + "/playlists/" + playlistId + "/tracks?fields=" + TRACK_PAGE_FIELDS
+            + "&limit=" + TRACK_PAGE_SIZE + "&offset=";
+
+        TrackPage firstPage = fetchTrackPage(URI.create(pageUrl + 0), accessToken, spotifyId);
+        List<TrackRecord> tracks = new ArrayList<>(Math.max(firstPage.getTotal(), firstPage.getItems().size()));
+        tracks.addAll(firstPage.getItems());
+
+        if (firstPage.getTotal() > TRACK_PAGE_SIZE) {
+            List<CompletableFuture<TrackPage>> pages = new ArrayList<>();
+            for (int offset = TRACK_PAGE_SIZE; offset < firstPage.getTotal(); offset += TRACK_PAGE_SIZE) {
+                URI uri = URI.create(pageUrl + offset);
+                pages.add(CompletableFuture.supplyAsync(() -> fetchTrackPage(uri, accessToken, spotifyId), pageExecutor));
+            }
+            try {
+                for (CompletableFuture<TrackPage> page : pages) {
+                    tracks.addAll(page.join().getItems());
+                }
+            } catch (CompletionException e) {
+                pages.forEach(page -> page.cancel(true));
+                throw new RuntimeException("Failed to fetch playlist tracks", e.getCause());
+            }
+        } else {
+            // total missing or a single page, just follow next
+            String next = firstPage.getNext();
+            while (next != null) {
+                TrackPage page = fetchTrackPage(URI.create(next), accessToken, spotifyId);
+                tracks.addAll(page.getItems());
+                next = page.getNext();
+            }
+        }
 
-        String url = BASE_URL + "/playlists/" + playlistId + "/tracks";
-        logger.info("Fetching tracks from URL: {}", url);
-        
-        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
-        logger.info("Tracks response status: {}", response.getStatusCode());
-        // Removed debug logging of response body
-        
-        return response;
+        logger.info("Fetched {} tracks for playlist {}", tracks.size(), playlistId);
+        return tracks;
     }
 
-    public ResponseEntity<String> getUserProfile(String spotifyId) {
-        HttpHeaders headers = new HttpHeaders();
-        headers.setBearerAuth(getAccessTokenForUser(spotifyId));
-        HttpEntity<String> entity = new HttpEntity<>("parameters", headers);
-
-        String url = BASE_URL + "/me";
-        return restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+    private TrackPage fetchTrackPage(URI uri, String accessToken, String spotifyId) {
+        return rateLimiter.execute(spotifyId, "playlist-tracks", () -> restTemplate.execute(uri, HttpMethod.GET,
+            request -> request.getHeaders().setBearerAuth(accessToken),
+            response -> trackPageParser.parse(response.getBody())));
     }
 
     public ResponseEntity<String> createPlaylist(String userId, String name, boolean isPublic, String description) {
@@ -225,7 +351,20 @@ public class SpotifyService {
         HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
         String url = BASE_URL + "/users/" + userId + "/playlists";
 
-        return restTemplate.exchange(url, HttpMethod.POST, request, String.class);
+        return rateLimiter.execute(userId, "create-playlist", () -> restTemplate.exchange(url, HttpMethod.POST, request, String.class));
+    }
+
+    /**
+     * Create an empty playlist
+     * @return Spotify ID of the new playlist
+     */
+    public String createPlaylistAndGetId(String userId, String name, boolean isPublic, String description) throws IOException {
+        ResponseEntity<String> response = createPlaylist(userId, name, isPublic, description);
+        String playlistId = jsonMapper.readTree(response.getBody()).path("id").asText(null);
+        if (playlistId == null) {
+            throw new IOException("Spotify did not return an ID for the new playlist " + name);
+        }
+        return playlistId;
     }
 
     public ResponseEntity<String> addTracksToPlaylist(String playlistId, List<String> trackUris, Integer position, String spotifyId) {
@@ -244,22 +383,15 @@ public class SpotifyService {
         HttpEntity<Map<String, Object>> request = new HttpEntity<>(requestBody, headers);
         String url = BASE_URL + "/playlists/" + playlistId + "/tracks";
 
-        return restTemplate.exchange(url, HttpMethod.POST, request, String.class);
+        return rateLimiter.execute(spotifyId, "add-tracks", () -> restTemplate.exchange(url, HttpMethod.POST, request, String.class));
     }
 
     public List<String> getTrackUrisFromResponse(String tracksJson) {
         try {
             List<String> uris = new ArrayList<>();
-            ObjectMapper objectMapper = new ObjectMapper();
-            JsonNode root = objectMapper.readTree(tracksJson);
-            JsonNode items = root.get("items");
-
-            if (items != null && items.isArray()) {
-                for (JsonNode item : items) {
-                    JsonNode track = item.get("track");
-                    if (track != null && track.has("uri")) {
-                        uris.add(track.get("uri").asText());
-                    }
+            for (TrackRecord track : trackPageParser.parse(tracksJson).getItems()) {
+                if (track.getUri() != null) {
+                    uris.add(track.getUri());
                 }
             }
             return uris;
@@ -273,97 +405,35 @@ public class SpotifyService {
         try {
             HttpHeaders headers = new HttpHeaders();
             headers.setBearerAuth(getAccessTokenForUser(spotifyId));
-            HttpEntity<String> entity = new HttpEntity<>("parameters", headers);
+            HttpEntity<String> entity = new HttpEntity<>(headers);
 
             String encodedQuery = UriComponentsBuilder.fromUriString(query).encode().toUriString();
             String url = BASE_URL + "/search?q=" + encodedQuery + "&type=track&limit=5";
             
             logger.info("Searching for track with query: {}", query);
-            return restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+            return rateLimiter.execute(spotifyId, "search", () -> restTemplate.exchange(url, HttpMethod.GET, entity, String.class));
         } catch (Exception e) {
             logger.error("Error searching for track: {}", e.getMessage());
             throw new RuntimeException("Failed to search for track", e);
         }
     }
 
-    public SearchResult findBestMatch(String trackName, String artistName, String spotifyId) {
-        try {
-            // Create a search query combining track and artist
-            String searchQuery = trackName;
-            if (artistName != null && !artistName.isEmpty()) {
-                searchQuery += " artist:" + artistName;
-            }
-            
-            ResponseEntity<String> response = searchTrack(searchQuery, spotifyId);
-            
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                ObjectMapper mapper = new ObjectMapper();
-                JsonNode root = mapper.readTree(response.getBody());
-                JsonNode tracks = root.path("tracks").path("items");
-                
-                if (tracks.isArray() && tracks.size() > 0) {
-                    // Get the first (best) match
-                    JsonNode bestMatch = tracks.get(0);
-                    
-                    // Calculate similarity score
-                    double similarity = calculateSimilarity(
-                        trackName.toLowerCase(),
-                        bestMatch.path("name").asText().toLowerCase()
-                    );
-                    
-                    return new SearchResult(
-                        bestMatch.path("id").asText(),
-                        bestMatch.path("name").asText(),
-                        bestMatch.path("artists").get(0).path("name").asText(),
-                        similarity
-                    );
-                }
-            }
-            return null;
-        } catch (Exception e) {
-            logger.error("Error finding best match: {}", e.getMessage());
-            return null;
-        }
-    }
-
-    private double calculateSimilarity(String s1, String s2) {
-        int maxLength = Math.max(s1.length(), s2.length());
-        if (maxLength == 0) return 1.0;
-        
-        int distance = levenshteinDistance(s1, s2);
-        return 1.0 - ((double) distance / maxLength);
-    }
-
-    private int levenshteinDistance(String s1, String s2) {
-        int[][] dp = new int[s1.length() + 1][s2.length() + 1];
-        
-        for (int i = 0; i <= s1.length(); i++) {
-            for (int j = 0; j <= s2.length(); j++) {
-                if (i == 0) {
-                    dp[i][j] = j;
-                } else if (j == 0) {
-                    dp[i][j] = i;
-                } else {
-                    dp[i][j] = Math.min(
-                        dp[i - 1][j - 1] + (s1.charAt(i - 1) == s2.charAt(j - 1) ? 0 : 1),
-                        Math.min(dp[i - 1][j] + 1, dp[i][j - 1] + 1)
-                    );
-                }
-            }
-        }
-        
-        return dp[s1.length()][s2.length()];
-    }
-
     public ResponseEntity<String> searchTracks(String query, String spotifyId) {
         HttpHeaders headers = new HttpHeaders();
         headers.setBearerAuth(getAccessTokenForUser(spotifyId));
-        HttpEntity<String> entity = new HttpEntity<>("parameters", headers);
+        HttpEntity<String> entity = new HttpEntity<>(headers);
 
-        String url = BASE_URL + "/search?q=" + URLEncoder.encode(query, StandardCharsets.UTF_8) 
-            + "&type=track&limit=10";
+        String url = searchTracksUrl(query);
+        return rateLimiter.execute(spotifyId, "search", () -> restTemplate.exchange(url, HttpMethod.GET, entity, String.class));
+    }
+
+    /** Streaming searchTracks, see openGet */
+    public ClientHttpResponse openSearchTracks(String query, String spotifyId, HttpHeaders clientHeaders) {
+        return openGet(spotifyId, "search", searchTracksUrl(query), clientHeaders);
+    }
 
-        return restTemplate.exchange(url, HttpMethod.GET, entity, String.class);
+    private String searchTracksUrl(String query) {
+        return BASE_URL + "/search?q=" + URLEncoder.encode(query, StandardCharsets.UTF_8) + "&type=track&limit=10";
     }
 
 }
@@ -0,0 +1,211 @@
+package com.example.tunemerge.service;
+
+import java.time.Duration;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestTemplate;
+
+import com.example.tunemerge.model.SpotifyTokenResponse;
+import com.example.tunemerge.model.User;
+
+/**
+ * Keeps Spotify access tokens in memory so API calls do not read the users
+ * table. Only one refresh runs per user at a time, concurrent callers wait for
+ * it, and a background task refreshes tokens shortly before they expire.
+ * Tokens unused for spotify.token.idle-timeout are dropped instead, and read
+ * from the users table again on the next call.
+ */
+@Service
+public class SpotifyTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(SpotifyTokenService.class);
+
+    private static final String TOKEN_URL = "https://accounts.spotify.com/api/token";
+
+    @Value("${spotify.client.id}")
+    private String clientId;
+
+    @Value("${spotify.client.secret}")
+    private String clientSecret;
+
+    @Value("${spotify.token.refresh-ahead:5m}")
+    private Duration refreshAhead;
+
+    @Value("${spotify.token.idle-timeout:1h}")
+    private Duration idleTimeout;
+
+    private final RestTemplate restTemplate;
+    private final UserService userService;
+    private final UpstreamMetrics upstreamMetrics;
+
+    private final ConcurrentMap<String, CachedToken> tokens = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CompletableFuture<CachedToken>> refreshes = new ConcurrentHashMap<>();
+
+    public SpotifyTokenService(RestTemplate restTemplate, UserService userService, UpstreamMetrics upstreamMetrics) {
+        this.restTemplate = restTemplate;
+        this.userService = userService;
+        this.upstreamMetrics = upstreamMetrics;
+    }
+
+    /**
+     * @param spotifyId Spotify user ID
+     * @return a valid access token, refreshed first if it has expired
+     */
+    public String getAccessToken(String spotifyId) {
+        CachedToken token = tokens.computeIfAbsent(spotifyId, this::loadToken);
+        long now = System.currentTimeMillis();
+        token.lastUsed = now;
+        if (now >= token.expiresAt) {
+            token = refresh(spotifyId, now);
+        }
+        return token.accessToken;
+    }
+
+    /**
+     * Put freshly issued tokens in the cache, called after the user was saved
+     * @param user user holding the new tokens
+     */
+    public void store(User user) {
+        tokens.put(user.getSpotifyId(),
+            new CachedToken(user.getAccessToken(), user.getTokenExpirationTime(), System.currentTimeMillis()));
+    }
+
+    @Scheduled(fixedDelayString = "${spotify.token.refresh-check-interval:60000}")
+    public void refreshExpiringTokens() {
+        long now = System.currentTimeMillis();
+        long refreshBefore = now + refreshAhead.toMillis();
+        long idleBefore = now - idleTimeout.toMillis();
+        for (Map.Entry<String, CachedToken> entry : tokens.entrySet()) {
+            CachedToken token = entry.getValue();
+            if (token.lastUsed < idleBefore) {
+                tokens.remove(entry.getKey(), token);
+            } else if (token.expiresAt <= refreshBefore) {
+                try {
+                    refresh(entry.getKey(), refreshBefore);
+                } catch (HttpClientErrorException e) {
+                    if (isInvalidGrant(e)) {
+                        // revoked or expired refresh token, retrying cannot help until the user logs in again
+                        tokens.remove(entry.getKey());
+                        logger.warn("Spotify refresh token of {} is no longer valid, dropped it from the cache", entry.getKey());
+                    } else {
+                        logger.error("Background refresh of Spotify token for {} failed: {}", entry.getKey(), e.getMessage());
+                    }
+                } catch (RuntimeException e) {
+                    logger.error("Background refresh of Spotify token for {} failed: {}", entry.getKey(), e.getMessage());
+                }
+            }
+        }
+    }
+
+    private static boolean isInvalidGrant(HttpClientErrorException e) {
+        return e.getStatusCode().value() == 400 && e.getResponseBodyAsString().contains("invalid_grant");
+    }
+
+    // refreshes unless the cached token is already valid past validUntil, joining a refresh already in flight
+    private CachedToken refresh(String spotifyId, long validUntil) {
+        CompletableFuture<CachedToken> mine = new CompletableFuture<>();
+        CompletableFuture<CachedToken> inFlight = refreshes.putIfAbsent(spotifyId, mine);
+        if (inFlight != null) {
+            return await(inFlight);
+        }
+
+        try {
+            CachedToken current = tokens.get(spotifyId);
+            CachedToken refreshed = current != null && current.expiresAt > validUntil
+                ? current
+                : refreshAccessToken(spotifyId);
+            mine.complete(refreshed);
+            return refreshed;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            refreshes.remove(spotifyId, mine);
+        }
+    }
+
+    private CachedToken await(CompletableFuture<CachedToken> inFlight) {
+        try {
+            return inFlight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    private CachedToken loadToken(String spotifyId) {
+        User user = userService.getUserBySpotifyId(spotifyId)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+        return new CachedToken(user.getAccessToken(), user.getTokenExpirationTime(), System.currentTimeMillis());
+    }
+
+    private CachedToken refreshAccessToken(String spotifyId) {
+        User user = userService.getUserBySpotifyId(spotifyId)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+        headers.setBasicAuth(Base64.getEncoder().encodeToString((clientId + ":" + clientSecret).getBytes()));
+
+        MultiValueMap<String, String> body = new LinkedMultiValueMap<>();
+        body.add("grant_type", "refresh_token");
+        body.add("refresh_token", user.getRefreshToken());
+
+        HttpEntity<MultiValueMap<String, String>> request = new HttpEntity<>(body, headers);
+
+        ResponseEntity<SpotifyTokenResponse> response = upstreamMetrics.record(UpstreamMetrics.SPOTIFY, "token-refresh",
+            () -> restTemplate.postForEntity(TOKEN_URL, request, SpotifyTokenResponse.class));
+
+        if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
+            SpotifyTokenResponse tokenResponse = response.getBody();
+            user.setAccessToken(tokenResponse.getAccessToken());
+            user.setTokenExpirationTime(System.currentTimeMillis() + (tokenResponse.getExpiresIn() * 1000L));
+            if (tokenResponse.getRefreshToken() != null) {
+                user.setRefreshToken(tokenResponse.getRefreshToken());
+            }
+            userService.updateUser(user);
+
+            // a background refresh does not count as use
+            CachedToken current = tokens.get(spotifyId);
+            long lastUsed = current != null ? current.lastUsed : System.currentTimeMillis();
+            CachedToken refreshed = new CachedToken(user.getAccessToken(), user.getTokenExpirationTime(), lastUsed);
+            tokens.put(spotifyId, refreshed);
+            logger.info("Refreshed Spotify access token for {}", spotifyId);
+            return refreshed;
+        } else {
+            throw new RuntimeException("Failed to refresh access token");
+        }
+    }
+
+    private static final class CachedToken {
+        private final String accessToken;
+        private final long expiresAt;
+        // written on every use, read by the background refresh
+        private volatile long lastUsed;
+
+        private CachedToken(String accessToken, long expiresAt, long lastUsed) {
+            this.accessToken = accessToken;
+            this.expiresAt = expiresAt;
+            this.lastUsed = lastUsed;
+        }
+    }
+}
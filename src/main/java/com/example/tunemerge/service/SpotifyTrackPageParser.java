@@ -0,0 +1,136 @@
+package com.example.tunemerge.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import org.springframework.stereotype.Component;
+
+import com.example.tunemerge.model.TrackPage;
+import com.example.tunemerge.model.TrackRecord;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Decodes a Spotify playlist tracks page with the streaming JsonParser.
+ * Only the fields we store are read, everything else is skipped without
+ * building a JsonNode tree.
+ */
+@Component
+public class SpotifyTrackPageParser {
+    private final JsonFactory jsonFactory;
+
+    public SpotifyTrackPageParser(ObjectMapper objectMapper) {
+        this.jsonFactory = objectMapper.getFactory();
+    }
+
+    public TrackPage parse(InputStream body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return readPage(parser);
+        }
+    }
+
+    public TrackPage parse(String body) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(body)) {
+            return readPage(parser);
+        }
+    }
+
+    private TrackPage readPage(JsonParser parser) throws IOException {
+        TrackPage page = new TrackPage();
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Expected a JSON object for the tracks page");
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "items" -> readItems(parser, page.getItems());
+                case "total" -> page.setTotal(parser.getValueAsInt());
+                case "next" -> page.setNext(parser.getValueAsString());
+                default -> parser.skipChildren();
+            }
+        }
+        return page;
+    }
+
+    private void readItems(JsonParser parser, List<TrackRecord> items) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (parser.currentToken() != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                parser.nextToken();
+                if ("track".equals(field) && parser.currentToken() == JsonToken.START_OBJECT) {
+                    TrackRecord track = readTrack(parser);
+                    // local files and removed tracks come back without an ID
+                    if (track.getSpotifyId() != null) {
+                        items.add(track);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+    }
+
+    private TrackRecord readTrack(JsonParser parser) throws IOException {
+        TrackRecord track = new TrackRecord();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> track.setSpotifyId(parser.getValueAsString());
+                case "uri" -> track.setUri(parser.getValueAsString());
+                case "name" -> track.setName(parser.getValueAsString());
+                case "duration_ms" -> track.setDurationMs(parser.getValueAsLong());
+                case "artists" -> track.setArtist(readFirstArtistName(parser));
+                case "album" -> track.setAlbum(readName(parser));
+                default -> parser.skipChildren();
+            }
+        }
+        return track;
+    }
+
+    private String readFirstArtistName(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        String name = null;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            if (name == null && parser.currentToken() == JsonToken.START_OBJECT) {
+                name = readName(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return name;
+    }
+
+    private String readName(JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        String name = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            parser.nextToken();
+            if ("name".equals(field)) {
+                name = parser.getValueAsString();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return name;
+    }
+}
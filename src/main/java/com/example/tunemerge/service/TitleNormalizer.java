@@ -0,0 +1,274 @@
+package com.example.tunemerge.service;
+
+import org.springframework.stereotype.Component;
+
+import com.example.tunemerge.model.TrackInfo;
+
+/**
+ * Splits YouTube video titles into artist and track title in a single scan,
+ * dropping noise such as "(Official Video)", "[HD]", "Lyrics", "Remastered"
+ * and "feat. ..." credits. Keywords are matched in place against a fixed rule
+ * table, so no regexes are compiled and only the results are allocated.
+ * Stateless apart from a per-thread buffer, safe to share between threads.
+ */
+@Component
+public class TitleNormalizer {
+
+    // a bracketed group containing any of these words is dropped
+    private static final String[] GROUP_NOISE = {
+        "official", "oficial", "lyric", "lyrics", "audio", "video", "visualizer", "visualiser",
+        "hd", "hq", "4k", "remaster", "remastered", "mv"
+    };
+
+    // credits, drop everything from here up to the next separator
+    private static final String[] CREDITS = {"feat", "ft", "featuring", "prod"};
+
+    // dropped when they stand alone outside brackets
+    private static final String[] BARE_NOISE = {"hd", "hq", "4k", "lyrics", "remastered"};
+
+    // "official" is only noise when followed by one of these
+    private static final String[] OFFICIAL_TAIL = {"video", "audio", "music", "lyric", "lyrics", "visualizer"};
+
+    private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    /**
+     * @param videoTitle raw YouTube video title
+     * @return title and artist, artist is empty when the title has no separator
+     */
+    public TrackInfo parse(String videoTitle) {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+
+        int artistEnd = -1;
+        boolean skipping = false;
+        boolean dashSeparated = hasDashSeparator(videoTitle);
+        int length = videoTitle.length();
+        int i = 0;
+        while (i < length) {
+            char c = videoTitle.charAt(i);
+
+            char close = closingBracket(c);
+            if (close != 0) {
+                int end = videoTitle.indexOf(close, i + 1);
+                if (end > 0) {
+                    if (!skipping && !isNoiseGroup(videoTitle, i + 1, end)) {
+                        appendRegion(out, videoTitle, i, end + 1);
+                    }
+                    i = end + 1;
+                    continue;
+                }
+            }
+
+            int separator = artistEnd < 0 ? separatorLength(videoTitle, i, !dashSeparated) : 0;
+            if (separator > 0) {
+                artistEnd = out.length();
+                skipping = false;
+                i += separator;
+                continue;
+            }
+
+            if (Character.isLetterOrDigit(c) && (i == 0 || !Character.isLetterOrDigit(videoTitle.charAt(i - 1)))) {
+                int end = wordEnd(videoTitle, i);
+                if (matchesAny(videoTitle, i, end, CREDITS)) {
+                    skipping = true;
+                    i = end;
+                    continue;
+                }
+                if (matchesAny(videoTitle, i, end, BARE_NOISE)) {
+                    i = end;
+                    continue;
+                }
+                if (regionEquals(videoTitle, i, end, "official")) {
+                    int tailEnd = officialTailEnd(videoTitle, end);
+                    if (tailEnd > end) {
+                        i = tailEnd;
+                        continue;
+                    }
+                }
+                if (!skipping) {
+                    appendRegion(out, videoTitle, i, end);
+                }
+                i = end;
+                continue;
+            }
+
+            if (!skipping) {
+                append(out, c);
+            }
+            i++;
+        }
+
+        if (artistEnd < 0) {
+            return new TrackInfo(trimmed(out, 0, out.length()), "");
+        }
+        String artist = trimmed(out, 0, artistEnd);
+        String title = trimmed(out, artistEnd, out.length());
+        if (title.isEmpty()) {
+            return new TrackInfo(artist, "");
+        }
+        return new TrackInfo(title, artist);
+    }
+
+    /**
+     * Folded key for caches and dedupe: lower case letters and digits, single
+     * spaces, artist and title joined by '|'
+     */
+    public String normalizedKey(String title, String artist) {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        appendFolded(out, artist);
+        out.append('|');
+        appendFolded(out, title);
+        return out.toString();
+    }
+
+    /**
+     * @return lower case letters and digits of value separated by single spaces
+     */
+    public String fold(String value) {
+        StringBuilder out = BUFFER.get();
+        out.setLength(0);
+        appendFolded(out, value);
+        return out.toString();
+    }
+
+    private void appendFolded(StringBuilder out, String value) {
+        if (value == null) {
+            return;
+        }
+        int start = out.length();
+        boolean pendingSpace = false;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                if (pendingSpace && out.length() > start) {
+                    out.append(' ');
+                }
+                out.append(Character.toLowerCase(c));
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+    }
+
+    private boolean isNoiseGroup(String s, int start, int end) {
+        boolean firstWord = true;
+        int i = start;
+        while (i < end) {
+            if (!Character.isLetterOrDigit(s.charAt(i))) {
+                i++;
+                continue;
+            }
+            int wordEnd = Math.min(wordEnd(s, i), end);
+            if (matchesAny(s, i, wordEnd, GROUP_NOISE) || (firstWord && matchesAny(s, i, wordEnd, CREDITS))) {
+                return true;
+            }
+            firstWord = false;
+            i = wordEnd;
+        }
+        return false;
+    }
+
+    // end of "video", "music video", ... after "official", or wordEnd itself when nothing follows
+    private int officialTailEnd(String s, int wordEnd) {
+        int end = wordEnd;
+        int i = wordEnd;
+        while (i < s.length()) {
+            while (i < s.length() && s.charAt(i) == ' ') {
+                i++;
+            }
+            if (i >= s.length() || !Character.isLetterOrDigit(s.charAt(i))) {
+                break;
+            }
+            int next = wordEnd(s, i);
+            if (!matchesAny(s, i, next, OFFICIAL_TAIL)) {
+                break;
+            }
+            end = next;
+            i = next;
+        }
+        return end;
+    }
+
+    private static char closingBracket(char c) {
+        switch (c) {
+            case '(': return ')';
+            case '[': return ']';
+            case '{': return '}';
+            default: return 0;
+        }
+    }
+
+    /**
+     * " - ", en dash and em dash separate artist from title. A " : " or " | "
+     * only does in titles without a dash, where it cannot be part of the title
+     * as in "Interstellar: Main Theme" or "Artist - Song | Live at X".
+     */
+    private static int separatorLength(String s, int i, boolean spacedBareSeparators) {
+        char c = s.charAt(i);
+        if (c == '\u2013' || c == '\u2014') {
+            return 1;
+        }
+        if (c == ' ' && i + 2 < s.length() && s.charAt(i + 1) == '-' && s.charAt(i + 2) == ' ') {
+            return 3;
+        }
+        if ((c == ':' || c == '|') && spacedBareSeparators
+                && i > 0 && s.charAt(i - 1) == ' ' && i + 1 < s.length() && s.charAt(i + 1) == ' ') {
+            return 1;
+        }
+        return 0;
+    }
+
+    private static boolean hasDashSeparator(String s) {
+        return s.indexOf(" - ") >= 0 || s.indexOf('\u2013') >= 0 || s.indexOf('\u2014') >= 0;
+    }
+
+    private static int wordEnd(String s, int start) {
+        int i = start;
+        while (i < s.length() && Character.isLetterOrDigit(s.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean matchesAny(String s, int start, int end, String[] words) {
+        for (String word : words) {
+            if (regionEquals(s, start, end, word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean regionEquals(String s, int start, int end, String word) {
+        return end - start == word.length() && s.regionMatches(true, start, word, 0, word.length());
+    }
+
+    // appends collapsing runs of whitespace into one space
+    private static void append(StringBuilder out, char c) {
+        if (Character.isWhitespace(c)) {
+            if (out.length() > 0 && out.charAt(out.length() - 1) != ' ') {
+                out.append(' ');
+            }
+        } else {
+            out.append(c);
+        }
+    }
+
+    private static void appendRegion(StringBuilder out, String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            append(out, s.charAt(i));
+        }
+    }
+
+    private static String trimmed(StringBuilder out, int start, int end) {
+        while (start < end && out.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && out.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return out.substring(start, end);
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.tunemerge.service;
+
+import java.util.Arrays;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Dice similarity of the word sets of "title artist" on both sides, so word
+ * order and the artist both count. Words are hashed into reusable per-thread
+ * long buffers, no strings are allocated while scoring.
+ */
+@Component("tokenSet")
+public class TokenSetScorer implements MatchScorer {
+
+    private static final ThreadLocal<long[][]> BUFFERS = ThreadLocal.withInitial(() -> new long[2][32]);
+
+    @Override
+    public double score(String queryTitle, String queryArtist, String candidateTitle, String candidateArtist, double minScore) {
+        long[][] buffers = BUFFERS.get();
+        int queryCount = tokenize(queryTitle, queryArtist, buffers, 0);
+        int candidateCount = tokenize(candidateTitle, candidateArtist, buffers, 1);
+        if (queryCount == 0 && candidateCount == 0) return 1.0;
+        if (queryCount == 0 || candidateCount == 0) return 0.0;
+
+        // best case is every word of the shorter side also appearing on the other
+        double bound = 2.0 * Math.min(queryCount, candidateCount) / (queryCount + candidateCount);
+        if (bound < minScore) {
+            return 0.0;
+        }
+
+        long[] query = buffers[0];
+        long[] candidate = buffers[1];
+        int common = 0;
+        for (int i = 0, j = 0; i < queryCount && j < candidateCount; ) {
+            if (query[i] == candidate[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (query[i] < candidate[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return 2.0 * common / (queryCount + candidateCount);
+    }
+
+    // hashes the words of both strings into buffers[slot], sorted and deduplicated, returns the count
+    private int tokenize(String title, String artist, long[][] buffers, int slot) {
+        int count = addTokens(title, buffers, slot, 0);
+        count = addTokens(artist, buffers, slot, count);
+        long[] tokens = buffers[slot];
+        Arrays.sort(tokens, 0, count);
+
+        int unique = 0;
+        for (int i = 0; i < count; i++) {
+            if (unique == 0 || tokens[unique - 1] != tokens[i]) {
+                tokens[unique++] = tokens[i];
+            }
+        }
+        return unique;
+    }
+
+    private int addTokens(String value, long[][] buffers, int slot, int count) {
+        if (value == null) {
+            return count;
+        }
+        long hash = 0;
+        boolean inToken = false;
+        for (int i = 0; i <= value.length(); i++) {
+            char c = i < value.length() ? value.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                // FNV-1a over the lower-cased characters
+                hash = (inToken ? hash : 0xcbf29ce484222325L) ^ Character.toLowerCase(c);
+                hash *= 0x100000001b3L;
+                inToken = true;
+            } else if (inToken) {
+                if (count == buffers[slot].length) {
+                    buffers[slot] = Arrays.copyOf(buffers[slot], count * 2);
+                }
+                buffers[slot][count++] = hash;
+                inToken = false;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.tunemerge.service;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.stereotype.Component;
+
+import com.example.tunemerge.model.Track;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Ids from tracks_seq for tracks written over plain JDBC, in the blocks
+ * Hibernate's pooled optimizer uses for Track: a sequence value v reserves
+ * v - 49 .. v. One round trip covers 50 rows, and the ids never clash with
+ * those persist() assigns.
+ */
+@Component
+public class TrackIdAllocator {
+
+    // allocationSize of Track's generator
+    private static final int BLOCK_SIZE = 50;
+
+    private final String nextValueSql;
+
+    public TrackIdAllocator(EntityManagerFactory entityManagerFactory) {
+        this.nextValueSql = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+            .getJdbcServices().getDialect().getSequenceSupport().getSequenceNextValString("tracks_seq");
+    }
+
+    /** Set an id on every track, reading the sequence on the caller's connection */
+    public void assignIds(Connection connection, List<Track> tracks) throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(nextValueSql)) {
+            int assigned = 0;
+            while (assigned < tracks.size()) {
+                long hi;
+                try (ResultSet result = statement.executeQuery()) {
+                    result.next();
+                    hi = result.getLong(1);
+                }
+                // the sequence starts at 1, its first block is cut short
+                for (long id = Math.max(1, hi - BLOCK_SIZE + 1); id <= hi && assigned < tracks.size(); id++) {
+                    tracks.get(assigned++).setId(id);
+                }
+            }
+        }
+    }
+}
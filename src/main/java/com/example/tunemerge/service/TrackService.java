@@ -1,29 +1,57 @@
 package com.example.tunemerge.service;
 
+import java.sql.DatabaseMetaData;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+
+import javax.sql.DataSource;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.example.tunemerge.model.Playlist;
 import com.example.tunemerge.model.Track;
+import com.example.tunemerge.model.TrackRecord;
 import com.example.tunemerge.repository.TrackRepository;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
 
 @Service
 public class TrackService {
     private static final Logger logger = LoggerFactory.getLogger(TrackService.class);
     private final TrackRepository trackRepository;
-    private final ObjectMapper objectMapper;
+    private final SpotifyTrackPageParser trackPageParser;
+    private final LocalTrackIndex localTrackIndex;
+    private final TrackWriter trackWriter;
 
     @Autowired
-    public TrackService(TrackRepository trackRepository, ObjectMapper objectMapper) {
+    public TrackService(TrackRepository trackRepository, SpotifyTrackPageParser trackPageParser,
+                        LocalTrackIndex localTrackIndex,
+                        Map<String, TrackWriter> trackWriters,
+                        @Value("${ingest.track-writer:auto}") String writerName,
+                        DataSource dataSource) throws MetaDataAccessException {
         this.trackRepository = trackRepository;
-        this.objectMapper = objectMapper;
+        this.trackPageParser = trackPageParser;
+        this.localTrackIndex = localTrackIndex;
+        if ("auto".equals(writerName)) {
+            String product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            writerName = "PostgreSQL".equals(product) ? "postgresCopy" : "jdbcBatch";
+        }
+        this.trackWriter = trackWriters.get(writerName);
+        if (this.trackWriter == null) {
+            throw new IllegalArgumentException("Unknown ingest.track-writer " + writerName + ", expected auto or one of " + trackWriters.keySet());
+        }
+        logger.info("Writing ingested tracks with {}", writerName);
     }
 
     public Track createTrack(Track track) {
@@ -54,60 +82,92 @@ public class TrackService {
         return trackRepository.existsBySpotifyIdAndPlaylist(spotifyId, playlist);
     }
 
-    public void saveTracksFromSpotifyResponse(String tracksJson, Playlist playlist) {
+    @Transactional
+    public int saveTracksFromSpotifyResponse(String tracksJson, Playlist playlist) {
+        List<TrackRecord> tracks;
         try {
-            JsonNode root = objectMapper.readTree(tracksJson);
-            JsonNode items = root.get("items");
-
-            if (items != null && items.isArray()) {
-                for (JsonNode item : items) {
-                    JsonNode trackNode = item.get("track");
-                    if (trackNode == null) {
-                        continue;
-                    }
-
-                    String spotifyId = trackNode.get("id").asText();
-                    
-                    // Skip if track already exists in this playlist
-                    if (existsBySpotifyIdAndPlaylist(spotifyId, playlist)) {
-                        logger.debug("Track {} already exists in playlist {}", spotifyId, playlist.getId());
-                        continue;
-                    }
-
-                    Track track = new Track();
-                    track.setSpotifyId(spotifyId);
-                    track.setName(trackNode.get("name").asText());
-                    
-                    // Get first artist name
-                    JsonNode artists = trackNode.get("artists");
-                    if (artists != null && artists.isArray() && artists.size() > 0) {
-                        track.setArtist(artists.get(0).get("name").asText());
-                    } else {
-                        track.setArtist("Unknown Artist");
-                    }
-
-                    // Get album name
-                    JsonNode album = trackNode.get("album");
-                    if (album != null) {
-                        track.setAlbum(album.get("name").asText());
-                    } else {
-                        track.setAlbum("Unknown Album");
-                    }
-
-                    track.setPlaylist(playlist);
-
-                    try {
-                        trackRepository.save(track);
-                        logger.info("Saved track: {} with Spotify ID: {} to playlist: {}", 
-                            track.getName(), track.getSpotifyId(), playlist.getName());
-                    } catch (Exception e) {
-                        logger.error("Error saving track with Spotify ID {}: {}", spotifyId, e.getMessage());
-                    }
-                }
-            }
+            tracks = trackPageParser.parse(tracksJson).getItems();
         } catch (Exception e) {
             logger.error("Error parsing Spotify tracks JSON: {}", e.getMessage());
             throw new RuntimeException("Failed to parse Spotify tracks response", e);
         }
+        return saveTracks(tracks, playlist);
+    }
+
+    /**
+     * Save decoded Spotify tracks to a playlist, skipping tracks it already has.
+     * Existing IDs are loaded in one query and new rows are written by the configured {@link TrackWriter}.
+     * @param tracks tracks decoded from one or more Spotify pages
+     * @param playlist playlist to attach the tracks to
+     * @return number of inserted tracks
+     */
+    @Transactional
+    public int saveTracks(List<TrackRecord> tracks, Playlist playlist) {
+        return insertNewTracks(tracks, playlist, new HashSet<>(trackRepository.findSpotifyIdsByPlaylist(playlist)));
+    }
+
+    /**
+     * Make a playlist's stored tracks match a full Spotify track list: tracks no
+     * longer in the playlist are deleted and new ones are inserted
+     * @param tracks every track currently in the Spotify playlist
+     * @param playlist playlist to update
+     * @return number of inserted tracks
+     */
+    @Transactional
+    public int syncTracks(List<TrackRecord> tracks, Playlist playlist) {
+        Set<String> knownIds = new HashSet<>(trackRepository.findSpotifyIdsByPlaylist(playlist));
+
+        Set<String> removedIds = new HashSet<>(knownIds);
+        for (TrackRecord record : tracks) {
+            removedIds.remove(record.getSpotifyId());
+        }
+        if (!removedIds.isEmpty()) {
+            trackRepository.deleteByPlaylistAndSpotifyIdIn(playlist, removedIds);
+            knownIds.removeAll(removedIds);
+            logger.info("Removed {} tracks no longer in playlist {}", removedIds.size(), playlist.getName());
+        }
+        return insertNewTracks(tracks, playlist, knownIds);
+    }
+
+    private int insertNewTracks(List<TrackRecord> tracks, Playlist playlist, Set<String> knownIds) {
+        long start = System.nanoTime();
+        List<Track> newTracks = new ArrayList<>();
+        for (TrackRecord record : tracks) {
+            // add() also drops tracks repeated within the playlist itself
+            if (!knownIds.add(record.getSpotifyId())) {
+                continue;
+            }
+
+            Track track = new Track();
+            track.setSpotifyId(record.getSpotifyId());
+            track.setName(record.getName() != null ? record.getName() : "Unknown Track");
+            track.setArtist(record.getArtist() != null ? record.getArtist() : "Unknown Artist");
+            track.setAlbum(record.getAlbum() != null ? record.getAlbum() : "Unknown Album");
+            track.setPlaylist(playlist);
+            newTracks.add(track);
+        }
+
+        List<Track> inserted = trackWriter.insert(newTracks);
+        indexAfterCommit(inserted);
+
+        long elapsedMillis = Math.max(1, (System.nanoTime() - start) / 1_000_000);
+        logger.info("Inserted {} of {} tracks into playlist {} in {} ms ({} rows/sec)",
+            inserted.size(), tracks.size(), playlist.getName(), elapsedMillis,
+            inserted.size() * 1000L / elapsedMillis);
+        return inserted.size();
+    }
+
+    // a rolled back sync must not leave its tracks in the local index
+    private void indexAfterCommit(List<Track> inserted) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            localTrackIndex.addAll(inserted);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                localTrackIndex.addAll(inserted);
+            }
+        });
     }
 }
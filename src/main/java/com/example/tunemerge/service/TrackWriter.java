@@ -0,0 +1,19 @@
+package com.example.tunemerge.service;
+
+import java.util.List;
+
+import com.example.tunemerge.model.Track;
+
+/**
+ * Writes new tracks of a playlist during ingest. Selected with ingest.track-writer,
+ * the default picks the COPY writer on PostgreSQL and JDBC batching elsewhere.
+ */
+public interface TrackWriter {
+
+    /**
+     * Insert tracks inside the caller's transaction
+     * @param tracks new tracks, all of the same playlist and without duplicates
+     * @return the tracks actually inserted, rows another sync stored first are left out
+     */
+    List<Track> insert(List<Track> tracks);
+}
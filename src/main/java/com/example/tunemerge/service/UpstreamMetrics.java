@@ -0,0 +1,81 @@
+package com.example.tunemerge.service;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import com.google.api.client.http.HttpResponseException;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Times calls to Spotify and YouTube as tunemerge.upstream.requests, tagged
+ * with service, endpoint and outcome. Endpoints are short fixed names such as
+ * "search", never URLs, so the tag stays low-cardinality.
+ */
+@Component
+public class UpstreamMetrics {
+
+    public static final String SPOTIFY = "spotify";
+    public static final String YOUTUBE = "youtube";
+
+    /** A call that may throw a checked exception, like a YouTube client request */
+    @FunctionalInterface
+    public interface UpstreamCall<T, E extends Exception> {
+        T call() throws E;
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    public UpstreamMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    public <T, E extends Exception> T record(String service, String endpoint, UpstreamCall<T, E> call) throws E {
+        long start = System.nanoTime();
+        String outcome = "SUCCESS";
+        try {
+            return call.call();
+        } catch (Exception e) {
+            outcome = outcome(e);
+            throw e;
+        } finally {
+            Timer.builder("tunemerge.upstream.requests")
+                .description("Calls to the Spotify and YouTube APIs")
+                .tag("service", service)
+                .tag("endpoint", endpoint)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private static String outcome(Exception e) {
+        int status = 0;
+        if (e instanceof HttpStatusCodeException httpError) {
+            status = httpError.getStatusCode().value();
+        } else if (e instanceof HttpResponseException httpError) {
+            status = httpError.getStatusCode();
+        } else if (e instanceof ResourceAccessException || e instanceof IOException) {
+            return "IO_ERROR";
+        }
+        if (status == 304) {
+            return "NOT_MODIFIED";
+        }
+        if (status == 429) {
+            return "THROTTLED";
+        }
+        if (status >= 500) {
+            return "SERVER_ERROR";
+        }
+        if (status >= 400) {
+            return "CLIENT_ERROR";
+        }
+        return "UNKNOWN";
+    }
+}
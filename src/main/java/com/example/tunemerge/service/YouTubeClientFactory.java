@@ -0,0 +1,186 @@
+package com.example.tunemerge.service;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Collections;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.example.tunemerge.model.UserToken;
+import com.example.tunemerge.repository.UserTokenRepository;
+import com.google.api.client.auth.oauth2.Credential;
+import com.google.api.client.auth.oauth2.CredentialRefreshListener;
+import com.google.api.client.auth.oauth2.TokenErrorResponse;
+import com.google.api.client.auth.oauth2.TokenResponse;
+import com.google.api.client.googleapis.auth.oauth2.GoogleAuthorizationCodeFlow;
+import com.google.api.client.googleapis.auth.oauth2.GoogleClientSecrets;
+import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
+import com.google.api.client.http.HttpTransport;
+import com.google.api.client.http.apache.v2.ApacheHttpTransport;
+import com.google.api.client.json.JsonFactory;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.services.youtube.YouTube;
+
+/**
+ * Builds the YouTube API client once per token instead of once per call.
+ * All clients and the OAuth flow share one pooled keep-alive transport, and
+ * a token refresh updates the cached credential in place.
+ */
+@Component
+public class YouTubeClientFactory {
+    private static final Logger logger = LoggerFactory.getLogger(YouTubeClientFactory.class);
+
+    public static final String PROVIDER = "YOUTUBE";
+    private static final String SCOPE = "https://www.googleapis.com/auth/youtube.readonly";
+    private static final JsonFactory JSON_FACTORY = GsonFactory.getDefaultInstance();
+
+    private final UserTokenRepository userTokenRepository;
+    private final UpstreamMetrics upstreamMetrics;
+    private final String clientId;
+    private final String clientSecret;
+    private final HttpTransport transport;
+    private final GoogleAuthorizationCodeFlow authorizationFlow;
+
+    private volatile CachedClient cachedClient;
+
+    public YouTubeClientFactory(UserTokenRepository userTokenRepository,
+                                UpstreamMetrics upstreamMetrics,
+                                @Value("${youtube.client.id}") String clientId,
+                                @Value("${youtube.client.secret}") String clientSecret,
+                                @Value("${youtube.http.max-connections:20}") int maxConnections) {
+        this.userTokenRepository = userTokenRepository;
+        this.upstreamMetrics = upstreamMetrics;
+        this.clientId = clientId;
+        this.clientSecret = clientSecret;
+        this.transport = new ApacheHttpTransport(ApacheHttpTransport.newDefaultHttpClientBuilder()
+            .setMaxConnTotal(maxConnections)
+            .setMaxConnPerRoute(maxConnections)
+            .build());
+
+        GoogleClientSecrets.Details web = new GoogleClientSecrets.Details();
+        web.setClientId(clientId);
+        web.setClientSecret(clientSecret);
+        this.authorizationFlow = new GoogleAuthorizationCodeFlow.Builder(
+                transport,
+                JSON_FACTORY,
+                new GoogleClientSecrets().setWeb(web),
+                Collections.singleton(SCOPE))
+                .setAccessType("offline")
+                .build();
+    }
+
+    public GoogleAuthorizationCodeFlow getAuthorizationFlow() {
+        return authorizationFlow;
+    }
+
+    /**
+     * @return the YouTube client for the stored token, built on first use
+     * @throws IllegalStateException when no YouTube token has been stored yet
+     */
+    public YouTube getClient() {
+        CachedClient current = cachedClient;
+        if (current == null) {
+            synchronized (this) {
+                current = cachedClient;
+                if (current == null) {
+                    UserToken token = userTokenRepository.findByProvider(PROVIDER);
+                    if (token == null) {
+                        throw new IllegalStateException("No YouTube access token found. Please authenticate first.");
+                    }
+                    current = buildClient(token);
+                    cachedClient = current;
+                }
+            }
+        }
+        return current.youtube;
+    }
+
+    /**
+     * Swap a new token into the cached credential, called after login
+     * @param token the stored YouTube token
+     */
+    public synchronized void updateToken(UserToken token) {
+        CachedClient current = cachedClient;
+        if (current != null && current.tokenId.equals(token.getId())) {
+            applyToken(current.credential, token);
+        } else {
+            cachedClient = buildClient(token);
+        }
+    }
+
+    private CachedClient buildClient(UserToken token) {
+        GoogleCredential.Builder builder = new GoogleCredential.Builder()
+            .setTransport(transport)
+            .setJsonFactory(JSON_FACTORY)
+            .setClientSecrets(clientId, clientSecret)
+            .addRefreshListener(new TokenPersister(token.getId()));
+        GoogleCredential credential = new GoogleCredential(builder) {
+            // refreshes run inside API calls, timed on their own so they do not skew the call timers
+            @Override
+            protected TokenResponse executeRefreshToken() throws IOException {
+                return upstreamMetrics.record(UpstreamMetrics.YOUTUBE, "token-refresh", super::executeRefreshToken);
+            }
+        };
+        applyToken(credential, token);
+
+        YouTube youtube = new YouTube.Builder(transport, JSON_FACTORY, credential)
+            .setApplicationName("TuneMerge")
+            .build();
+        return new CachedClient(token.getId(), credential, youtube);
+    }
+
+    private void applyToken(GoogleCredential credential, UserToken token) {
+        credential.setAccessToken(token.getAccessToken());
+        credential.setRefreshToken(token.getRefreshToken());
+        if (token.getExpiresAt() != null) {
+            credential.setExpirationTimeMilliseconds(
+                token.getExpiresAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+        }
+    }
+
+    // writes tokens refreshed by the credential back to user_tokens
+    private class TokenPersister implements CredentialRefreshListener {
+        private final Long tokenId;
+
+        private TokenPersister(Long tokenId) {
+            this.tokenId = tokenId;
+        }
+
+        @Override
+        public void onTokenResponse(Credential credential, TokenResponse tokenResponse) {
+            userTokenRepository.findById(tokenId).ifPresent(token -> {
+                token.setAccessToken(tokenResponse.getAccessToken());
+                if (tokenResponse.getRefreshToken() != null) {
+                    token.setRefreshToken(tokenResponse.getRefreshToken());
+                }
+                if (tokenResponse.getExpiresInSeconds() != null) {
+                    token.setExpiresAt(LocalDateTime.now().plusSeconds(tokenResponse.getExpiresInSeconds()));
+                }
+                userTokenRepository.save(token);
+                logger.info("Refreshed YouTube access token");
+            });
+        }
+
+        @Override
+        public void onTokenErrorResponse(Credential credential, TokenErrorResponse tokenErrorResponse) throws IOException {
+            logger.error("Failed to refresh YouTube access token: {}",
+                tokenErrorResponse != null ? tokenErrorResponse.getError() : "no response");
+        }
+    }
+
+    private static final class CachedClient {
+        private final Long tokenId;
+        private final GoogleCredential credential;
+        private final YouTube youtube;
+
+        private CachedClient(Long tokenId, GoogleCredential credential, YouTube youtube) {
+            this.tokenId = tokenId;
+            this.credential = credential;
+            this.youtube = youtube;
+        }
+    }
+}
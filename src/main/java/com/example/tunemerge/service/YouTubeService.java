@@ -1,51 +1,60 @@
 package com.example.tunemerge.service;
 
 import java.io.IOException;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 import com.example.tunemerge.model.YtPlaylist;
-import com.example.tunemerge.repository.UserTokenRepository;
 import com.example.tunemerge.repository.YtPlaylistRepository;
-import com.google.api.client.googleapis.auth.oauth2.GoogleCredential;
-import com.google.api.client.http.javanet.NetHttpTransport;
-import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.googleapis.services.AbstractGoogleClientRequest;
+import com.google.api.client.http.HttpResponseException;
+import com.google.api.client.http.HttpStatusCodes;
+import com.google.api.client.json.GenericJson;
 import com.google.api.services.youtube.YouTube;
 import com.google.api.services.youtube.model.Playlist;
-import com.google.api.services.youtube.model.PlaylistItemListResponse;
 import com.google.api.services.youtube.model.PlaylistListResponse;
+import com.google.api.services.youtube.model.Video;
+import com.google.api.services.youtube.model.VideoListResponse;
 
 @Service
 public class YouTubeService {
 
+    // only one YouTube account is linked, so "mine" needs no user in the key
+    private static final String PLAYLISTS_CACHE_KEY = UpstreamMetrics.YOUTUBE + " playlists mine";
+
     @Autowired
-    private UserTokenRepository userTokenRepository;
+    private YouTubeClientFactory youTubeClientFactory;
 
     @Autowired
     private YtPlaylistRepository ytPlaylistRepository;
 
-    public List<Playlist> getUserPlaylists() throws IOException {
-        // Get the most recent YouTube token
-        var ytToken = userTokenRepository.findByProvider("YOUTUBE");
-        if (ytToken == null) {
-            throw new IllegalStateException("No YouTube access token found. Please authenticate first.");
-        }
+    @Autowired
+    private UpstreamMetrics upstreamMetrics;
+
+    @Autowired
+    private ConditionalResponseCache responseCache;
+
+    @Autowired
+    @Qualifier("youtubePageExecutor")
+    private ExecutorService pageExecutor;
 
-        // Create credentials with the access token
-        GoogleCredential credential = new GoogleCredential().setAccessToken(ytToken.getAccessToken());
+    @Value("${youtube.page-prefetch-depth:2}")
+    private int pagePrefetchDepth;
 
-        // Create YouTube service
-        YouTube youtube = new YouTube.Builder(
-            new NetHttpTransport(),
-            GsonFactory.getDefaultInstance(),
-            credential)
-            .setApplicationName("TuneMerge")
-            .build();
+    public List<Playlist> getUserPlaylists() throws IOException {
+        YouTube youtube = youTubeClientFactory.getClient();
 
         // Call the YouTube API to get playlists
         YouTube.Playlists.List request = youtube.playlists()
@@ -53,9 +62,13 @@ public class YouTubeService {
             .setMine(true)
             .setMaxResults(50L);
 
-        // Execute the API request
-        PlaylistListResponse response = request.execute();
-        
+        // Execute the API request, an unchanged list comes back from the ETag cache
+        ConditionalResponseCache.Entry<PlaylistListResponse> cached = responseCache.get(PLAYLISTS_CACHE_KEY);
+        PlaylistListResponse response = executeConditional(PLAYLISTS_CACHE_KEY, "playlists", request);
+        if (cached != null && response == cached.getBody()) {
+            return response.getItems();
+        }
+
         // Save playlists to database
         for (Playlist playlist : response.getItems()) {
             YtPlaylist ytPlaylist = new YtPlaylist();
@@ -70,66 +83,93 @@ public class YouTubeService {
 
     // Helper method to get playlist details if needed
     public Playlist getPlaylistById(String playlistId) throws IOException {
-        var ytToken = userTokenRepository.findByProvider("YOUTUBE");
-        if (ytToken == null) {
-            throw new IllegalStateException("No YouTube access token found. Please authenticate first.");
-        }
-
-        GoogleCredential credential = new GoogleCredential().setAccessToken(ytToken.getAccessToken());
-
-        YouTube youtube = new YouTube.Builder(
-            new NetHttpTransport(),
-            GsonFactory.getDefaultInstance(),
-            credential)
-            .setApplicationName("TuneMerge")
-            .build();
+        YouTube youtube = youTubeClientFactory.getClient();
 
         YouTube.Playlists.List request = youtube.playlists()
             .list(Arrays.asList("snippet", "contentDetails"))
             .setId(Collections.singletonList(playlistId));
 
-        PlaylistListResponse response = request.execute();
+        PlaylistListResponse response = upstreamMetrics.record(UpstreamMetrics.YOUTUBE, "playlist", request::execute);
         return response.getItems().get(0);
     }
 
-    public PlaylistItemListResponse getPlaylistTracks(String playlistId) throws IOException {
-        var ytToken = userTokenRepository.findByProvider("YOUTUBE");
-        if (ytToken == null) {
-            throw new IllegalStateException("No YouTube access token found. Please authenticate first.");
-        }
-
-        GoogleCredential credential = new GoogleCredential().setAccessToken(ytToken.getAccessToken());
-
-        YouTube youtube = new YouTube.Builder(
-            new NetHttpTransport(),
-            GsonFactory.getDefaultInstance(),
-            credential)
-            .setApplicationName("TuneMerge")
-            .build();
-
-        YouTube.PlaylistItems.List request = youtube.playlistItems()
-            .list(Arrays.asList("snippet", "contentDetails"))
-            .setPlaylistId(playlistId)
-            .setMaxResults(50L);
-
-        return request.execute();
+    /**
+     * Stream every page of a playlist, prefetching ahead of the caller
+     * @param playlistId YouTube playlist ID
+     * @return page iterator, must be closed by the caller
+     */
+    public PlaylistItemPages getPlaylistTrackPages(String playlistId) {
+        YouTube youtube = youTubeClientFactory.getClient();
+
+        return new PlaylistItemPages(pageToken -> {
+            YouTube.PlaylistItems.List request = youtube.playlistItems()
+                .list(Arrays.asList("snippet", "contentDetails"))
+                .setPlaylistId(playlistId)
+                .setMaxResults(50L)
+                .setPageToken(pageToken);
+            String cacheKey = UpstreamMetrics.YOUTUBE + " playlistItems " + playlistId + " " + pageToken;
+            return executeConditional(cacheKey, "playlist-items", request);
+        }, pagePrefetchDepth, pageExecutor);
     }
 
-    public ResponseEntity<?> searchVideos(String query) throws IOException {
-        var ytToken = userTokenRepository.findByProvider("YOUTUBE");
-        if (ytToken == null) {
-            throw new IllegalStateException("No YouTube access token found");
+    /**
+     * Look up video lengths, 50 videos per request
+     * @param videoIds IDs of the videos, for instance from playlist item contentDetails
+     * @return length in milliseconds by video ID, videos that are private or deleted are missing
+     */
+    public Map<String, Long> getVideoDurations(List<String> videoIds) throws IOException {
+        YouTube youtube = youTubeClientFactory.getClient();
+        Map<String, Long> durations = new HashMap<>();
+        for (int start = 0; start < videoIds.size(); start += 50) {
+            List<String> chunk = videoIds.subList(start, Math.min(start + 50, videoIds.size()));
+            YouTube.Videos.List request = youtube.videos()
+                .list(Collections.singletonList("contentDetails"))
+                .setId(chunk)
+                .setMaxResults(50L);
+            VideoListResponse response = upstreamMetrics.record(UpstreamMetrics.YOUTUBE, "videos", request::execute);
+            for (Video video : response.getItems()) {
+                String duration = video.getContentDetails() != null ? video.getContentDetails().getDuration() : null;
+                if (duration == null) {
+                    continue;
+                }
+                try {
+                    // ISO 8601 such as PT4M13S, live streams report P0D
+                    durations.put(video.getId(), Duration.parse(duration).toMillis());
+                } catch (DateTimeParseException e) {
+                    // matched without a length then
+                }
+            }
         }
+        return durations;
+    }
 
-        GoogleCredential credential = new GoogleCredential()
-            .setAccessToken(ytToken.getAccessToken());
+    /**
+     * Execute a read with If-None-Match when an earlier response is cached.
+     * The client reports 304 as an exception, it is answered with the cached
+     * response object instead.
+     */
+    private <T extends GenericJson> T executeConditional(String cacheKey, String endpoint,
+                                                         AbstractGoogleClientRequest<T> request) throws IOException {
+        ConditionalResponseCache.Entry<T> cached = responseCache.get(cacheKey);
+        if (cached != null) {
+            request.setRequestHeaders(request.getRequestHeaders().setIfNoneMatch(cached.getEtag()));
+        }
+        try {
+            T response = upstreamMetrics.record(UpstreamMetrics.YOUTUBE, endpoint, request::execute);
+            Object etag = response.get("etag");
+            responseCache.put(cacheKey, etag != null ? etag.toString() : null, response);
+            return response;
+        } catch (HttpResponseException e) {
+            if (e.getStatusCode() == HttpStatusCodes.STATUS_CODE_NOT_MODIFIED && cached != null) {
+                responseCache.recordNotModified(UpstreamMetrics.YOUTUBE);
+                return cached.getBody();
+            }
+            throw e;
+        }
+    }
 
-        YouTube youtube = new YouTube.Builder(
-            new NetHttpTransport(),
-            GsonFactory.getDefaultInstance(),
-            credential)
-            .setApplicationName("TuneMerge")
-            .build();
+    public ResponseEntity<?> searchVideos(String query) throws IOException {
+        YouTube youtube = youTubeClientFactory.getClient();
 
         YouTube.Search.List request = youtube.search()
             .list(Arrays.asList("snippet"))
@@ -138,6 +178,6 @@ public class YouTubeService {
             .setVideoCategoryId("10") // Music category
             .setMaxResults(10L);
 
-        return ResponseEntity.ok(request.execute());
+        return ResponseEntity.ok(upstreamMetrics.record(UpstreamMetrics.YOUTUBE, "search", request::execute));
     }
 } 
\ No newline at end of file
@@ -0,0 +1,85 @@
+-- Schema as Hibernate used to generate it. IF NOT EXISTS lets databases created
+-- by auto-DDL be adopted with spring.flyway.baseline-on-migrate.
+-- Written for both H2 and PostgreSQL.
+
+CREATE TABLE IF NOT EXISTS users (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    spotify_id VARCHAR(255) UNIQUE,
+    email VARCHAR(255),
+    display_name VARCHAR(255),
+    access_token VARCHAR(500),
+    refresh_token VARCHAR(500),
+    token_expiration_time BIGINT NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS playlists (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    spotify_id VARCHAR(255) NOT NULL,
+    snapshot_id VARCHAR(255),
+    user_id BIGINT NOT NULL,
+    CONSTRAINT fk_playlists_user FOREIGN KEY (user_id) REFERENCES users (id)
+);
+
+CREATE SEQUENCE IF NOT EXISTS tracks_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS tracks (
+    id BIGINT PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    artist VARCHAR(255) NOT NULL,
+    album VARCHAR(255) NOT NULL,
+    spotify_id VARCHAR(255) NOT NULL,
+    playlist_id BIGINT NOT NULL,
+    CONSTRAINT fk_tracks_playlist FOREIGN KEY (playlist_id) REFERENCES playlists (id)
+);
+
+CREATE TABLE IF NOT EXISTS user_tokens (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    access_token VARCHAR(255),
+    refresh_token VARCHAR(255),
+    created_at TIMESTAMP(6),
+    expires_at TIMESTAMP(6),
+    provider VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS yt_access_tokens (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    access_token VARCHAR(255),
+    refresh_token VARCHAR(255),
+    created_at TIMESTAMP(6),
+    expires_at TIMESTAMP(6),
+    provider VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS yt_playlists (
+    id VARCHAR(255) PRIMARY KEY,
+    title VARCHAR(255) NOT NULL,
+    description VARCHAR(255)
+);
+
+CREATE TABLE IF NOT EXISTS match_cache (
+    cache_key VARCHAR(1024) PRIMARY KEY,
+    spotify_track_id VARCHAR(255),
+    name VARCHAR(255),
+    artist VARCHAR(255),
+    similarity DOUBLE PRECISION NOT NULL,
+    created_at TIMESTAMP(6) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS export_jobs (
+    id VARCHAR(36) PRIMARY KEY,
+    youtube_playlist_id VARCHAR(255) NOT NULL,
+    spotify_id VARCHAR(255) NOT NULL,
+    playlist_name VARCHAR(255),
+    spotify_playlist_id VARCHAR(255),
+    status VARCHAR(16) NOT NULL,
+    total INTEGER NOT NULL,
+    processed INTEGER NOT NULL,
+    matched_count INTEGER NOT NULL,
+    unmatched_count INTEGER NOT NULL,
+    failed_count INTEGER NOT NULL,
+    result_json TEXT,
+    error VARCHAR(1024),
+    created_at TIMESTAMP(6) NOT NULL,
+    finished_at TIMESTAMP(6)
+);
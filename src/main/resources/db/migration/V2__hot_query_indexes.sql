@@ -0,0 +1,56 @@
+-- Indexes for the lookups on the request and sync paths, and unique keys
+-- matching the dedupe in TrackService and PlaylistService.
+-- Unique indexes rather than constraints since PostgreSQL has no
+-- ADD CONSTRAINT IF NOT EXISTS; ON CONFLICT works with either.
+
+-- playlists stored twice for the same Spotify playlist, the oldest row stays;
+-- tracks of the others go with them, the next sync fetches them again
+DELETE FROM tracks t
+WHERE EXISTS (
+    SELECT 1 FROM playlists p
+    WHERE p.id = t.playlist_id
+      AND EXISTS (SELECT 1 FROM playlists d WHERE d.spotify_id = p.spotify_id AND d.id < p.id)
+);
+DELETE FROM playlists p
+WHERE EXISTS (
+    SELECT 1 FROM playlists d
+    WHERE d.spotify_id = p.spotify_id AND d.id < p.id
+);
+
+-- rows inserted twice before ingest deduplicated within a playlist
+DELETE FROM tracks t
+WHERE EXISTS (
+    SELECT 1 FROM tracks d
+    WHERE d.playlist_id = t.playlist_id AND d.spotify_id = t.spotify_id AND d.id < t.id
+);
+
+-- existsBySpotifyIdAndPlaylist, findSpotifyIdsByPlaylist (index only), deleteByPlaylistAndSpotifyIdIn
+CREATE UNIQUE INDEX IF NOT EXISTS ux_tracks_playlist_spotify_id ON tracks (playlist_id, spotify_id);
+
+-- findBySpotifyId
+CREATE INDEX IF NOT EXISTS ix_tracks_spotify_id ON tracks (spotify_id);
+
+-- findBySpotifyId, findBySpotifyIdIn, existsBySpotifyId; playlists are shared by Spotify ID
+CREATE UNIQUE INDEX IF NOT EXISTS ux_playlists_spotify_id ON playlists (spotify_id);
+
+-- findByUser and the library overlap query
+CREATE INDEX IF NOT EXISTS ix_playlists_user_id ON playlists (user_id);
+
+-- the YouTube callback used to add a row per login, keep the newest per provider
+DELETE FROM user_tokens t
+WHERE EXISTS (
+    SELECT 1 FROM user_tokens d
+    WHERE d.provider = t.provider AND d.id > t.id
+);
+DELETE FROM yt_access_tokens t
+WHERE EXISTS (
+    SELECT 1 FROM yt_access_tokens d
+    WHERE d.provider = t.provider AND d.id > t.id
+);
+
+-- findByProvider, one stored token per provider
+CREATE UNIQUE INDEX IF NOT EXISTS ux_user_tokens_provider ON user_tokens (provider);
+CREATE UNIQUE INDEX IF NOT EXISTS ux_yt_access_tokens_provider ON yt_access_tokens (provider);
+
+-- jobs left unfinished, marked failed on startup
+CREATE INDEX IF NOT EXISTS ix_export_jobs_status ON export_jobs (status);
@@ -0,0 +1,3 @@
+-- Tables adopted from Hibernate auto-DDL kept their old shape, V1 skipped them.
+-- Databases created before incremental sync have no snapshot_id yet.
+ALTER TABLE playlists ADD COLUMN IF NOT EXISTS snapshot_id VARCHAR(255);
@@ -0,0 +1,2 @@
+-- Running export jobs are renewed by their instance, stale ones are failed by any instance.
+ALTER TABLE export_jobs ADD COLUMN IF NOT EXISTS heartbeat_at TIMESTAMP(6);
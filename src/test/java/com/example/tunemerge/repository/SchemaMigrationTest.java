@@ -0,0 +1,195 @@
+package com.example.tunemerge.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.example.tunemerge.config.PlaylistsSequenceMigration;
+import com.example.tunemerge.config.TracksSequenceMigration;
+
+/**
+ * Runs the Flyway migrations on in-memory H2: a fresh database, one adopted
+ * from Hibernate auto-DDL, and the query plans of the hot lookups on a seeded one.
+ */
+class SchemaMigrationTest {
+
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private String url;
+
+    @BeforeEach
+    void newDatabase() {
+        url = "jdbc:h2:mem:migration-" + DATABASES.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+    }
+
+    @Test
+    void migratesEmptyDatabaseToLatestVersion() throws SQLException {
+        Flyway flyway = flyway();
+        flyway.migrate();
+
+        assertThat(flyway.info().current().getVersion().getVersion()).isEqualTo("6");
+        try (Connection connection = connect()) {
+            execute(connection, "INSERT INTO users (spotify_id, token_expiration_time) VALUES ('user', 0)");
+            execute(connection, "INSERT INTO playlists (name, spotify_id, snapshot_id, user_id) VALUES ('p', 'pl', 's', 1)");
+            execute(connection, "INSERT INTO tracks (id, name, artist, album, spotify_id, playlist_id) VALUES (1, 't', 'a', 'b', 'tr', 1)");
+            assertThat(queryLong(connection, "SELECT COUNT(*) FROM tracks")).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void adoptsAutoDdlDatabaseWithDuplicatesAndIdentityIds() throws SQLException {
+        try (Connection connection = connect()) {
+            execute(connection, "CREATE TABLE users (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "spotify_id VARCHAR(255) UNIQUE, email VARCHAR(255), display_name VARCHAR(255), "
+                + "access_token VARCHAR(500), refresh_token VARCHAR(500), token_expiration_time BIGINT NOT NULL)");
+            // no snapshot_id yet
+            execute(connection, "CREATE TABLE playlists (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "name VARCHAR(255) NOT NULL, spotify_id VARCHAR(255) NOT NULL, user_id BIGINT NOT NULL REFERENCES users (id))");
+            execute(connection, "CREATE TABLE tracks (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                + "name VARCHAR(255) NOT NULL, artist VARCHAR(255) NOT NULL, album VARCHAR(255) NOT NULL, "
+                + "spotify_id VARCHAR(255) NOT NULL, playlist_id BIGINT NOT NULL REFERENCES playlists (id))");
+            for (String table : new String[] {"user_tokens", "yt_access_tokens"}) {
+                execute(connection, "CREATE TABLE " + table + " (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "access_token VARCHAR(255), refresh_token VARCHAR(255), created_at TIMESTAMP(6), "
+                    + "expires_at TIMESTAMP(6), provider VARCHAR(255))");
+            }
+
+            execute(connection, "INSERT INTO users (spotify_id, token_expiration_time) VALUES ('user', 0)");
+            execute(connection, "INSERT INTO playlists (id, name, spotify_id, user_id) VALUES "
+                + "(1, 'first', 'pl-1', 1), (2, 'first again', 'pl-1', 1), (3, 'second', 'pl-2', 1)");
+            execute(connection, "INSERT INTO tracks (id, name, artist, album, spotify_id, playlist_id) VALUES "
+                + "(1, 't1', 'a', 'b', 'tr-1', 1), (2, 't1', 'a', 'b', 'tr-1', 1), (3, 't2', 'a', 'b', 'tr-2', 1), "
+                + "(4, 't1', 'a', 'b', 'tr-1', 2), (120, 't3', 'a', 'b', 'tr-3', 3)");
+            execute(connection, "INSERT INTO user_tokens (provider) VALUES ('YOUTUBE'), ('YOUTUBE'), ('SPOTIFY'), ('YOUTUBE')");
+            execute(connection, "INSERT INTO yt_access_tokens (provider) VALUES ('YOUTUBE'), ('YOUTUBE')");
+        }
+
+        flyway().migrate();
+
+        try (Connection connection = connect()) {
+            assertThat(queryLongs(connection, "SELECT id FROM playlists ORDER BY id")).containsExactly(1L, 3L);
+            assertThat(queryLongs(connection, "SELECT id FROM tracks ORDER BY id")).containsExactly(1L, 3L, 120L);
+            assertThat(queryLongs(connection, "SELECT id FROM user_tokens ORDER BY id")).containsExactly(3L, 4L);
+            assertThat(queryLongs(connection, "SELECT id FROM yt_access_tokens ORDER BY id")).containsExactly(2L);
+
+            execute(connection, "UPDATE playlists SET snapshot_id = 'snap' WHERE id = 1");
+
+            // Hibernate's pooled optimizer hands out the 50 ids ending at the value read
+            long next = queryLong(connection, "SELECT NEXT VALUE FOR tracks_seq");
+            assertThat(next - 49).isGreaterThan(120);
+            long nextPlaylist = queryLong(connection, "SELECT NEXT VALUE FOR playlists_seq");
+            assertThat(nextPlaylist - 49).isGreaterThan(3);
+        }
+    }
+
+    @Test
+    void hotLookupsUseTheNewIndexes() throws SQLException {
+        flyway().migrate();
+        try (Connection connection = connect()) {
+            seed(connection);
+
+            assertThat(plan(connection, "SELECT id FROM user_tokens WHERE provider = 'P7'"))
+                .contains("UX_USER_TOKENS_PROVIDER");
+            assertThat(plan(connection, "SELECT id FROM yt_access_tokens WHERE provider = 'P7'"))
+                .contains("UX_YT_ACCESS_TOKENS_PROVIDER");
+            assertThat(plan(connection, "SELECT id FROM playlists WHERE spotify_id = 'pl-17'"))
+                .contains("UX_PLAYLISTS_SPOTIFY_ID");
+            assertThat(plan(connection, "SELECT id FROM playlists WHERE user_id = 3"))
+                .contains("IX_PLAYLISTS_USER_ID");
+            assertThat(plan(connection, "SELECT id FROM tracks WHERE spotify_id = 'tr-42'"))
+                .contains("IX_TRACKS_SPOTIFY_ID");
+            // existsBySpotifyIdAndPlaylist as Hibernate writes it
+            assertThat(plan(connection, "SELECT id FROM tracks WHERE spotify_id = 'tr-42' AND playlist_id = 17 FETCH FIRST 1 ROWS ONLY"))
+                .contains("UX_TRACKS_PLAYLIST_SPOTIFY_ID");
+        }
+    }
+
+    // 10 users, 200 playlists, 20000 tracks with every Spotify track in 10 playlists
+    private static void seed(Connection connection) throws SQLException {
+        for (int user = 1; user <= 10; user++) {
+            execute(connection, "INSERT INTO users (spotify_id, token_expiration_time) VALUES ('user-" + user + "', 0)");
+        }
+        try (PreparedStatement playlists = connection.prepareStatement(
+                "INSERT INTO playlists (id, name, spotify_id, user_id) VALUES (?, ?, ?, ?)")) {
+            for (int playlist = 1; playlist <= 200; playlist++) {
+                playlists.setLong(1, playlist);
+                playlists.setString(2, "playlist " + playlist);
+                playlists.setString(3, "pl-" + playlist);
+                playlists.setLong(4, playlist % 10 + 1);
+                playlists.addBatch();
+            }
+            playlists.executeBatch();
+        }
+        try (PreparedStatement tracks = connection.prepareStatement(
+                "INSERT INTO tracks (id, name, artist, album, spotify_id, playlist_id) VALUES (?, ?, 'artist', 'album', ?, ?)")) {
+            for (int track = 1; track <= 20_000; track++) {
+                tracks.setLong(1, track);
+                tracks.setString(2, "track " + track);
+                tracks.setString(3, "tr-" + track % 2000);
+                tracks.setLong(4, (track - 1) / 100 + 1);
+                tracks.addBatch();
+            }
+            tracks.executeBatch();
+        }
+        for (int provider = 0; provider < 50; provider++) {
+            execute(connection, "INSERT INTO user_tokens (provider) VALUES ('P" + provider + "')");
+            execute(connection, "INSERT INTO yt_access_tokens (provider) VALUES ('P" + provider + "')");
+        }
+        execute(connection, "ANALYZE");
+    }
+
+    private Flyway flyway() {
+        return Flyway.configure()
+            .dataSource(url, "sa", "")
+            .locations("classpath:db/migration")
+            .javaMigrations(new TracksSequenceMigration(), new PlaylistsSequenceMigration())
+            .baselineOnMigrate(true)
+            .baselineVersion("0")
+            .load();
+    }
+
+    private Connection connect() throws SQLException {
+        return DriverManager.getConnection(url, "sa", "");
+    }
+
+    private static String plan(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery("EXPLAIN " + sql)) {
+            result.next();
+            return result.getString(1);
+        }
+    }
+
+    private static void execute(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute(sql);
+        }
+    }
+
+    private static long queryLong(Connection connection, String sql) throws SQLException {
+        return queryLongs(connection, sql).get(0);
+    }
+
+    private static List<Long> queryLongs(Connection connection, String sql) throws SQLException {
+        List<Long> values = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet result = statement.executeQuery(sql)) {
+            while (result.next()) {
+                values.add(result.getLong(1));
+            }
+        }
+        return values;
+    }
+}
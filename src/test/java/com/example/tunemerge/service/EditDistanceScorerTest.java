@@ -0,0 +1,74 @@
+package com.example.tunemerge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class EditDistanceScorerTest {
+
+    private final EditDistanceScorer scorer = new EditDistanceScorer();
+
+    @Test
+    void scoresOneMinusDistanceOverLongerLength() {
+        assertThat(scorer.similarity("kitten", "sitting", 0.0)).isCloseTo(1.0 - 3.0 / 7, within(1e-9));
+        assertThat(scorer.similarity("Get Lucky", "get lucky", 0.0)).isEqualTo(1.0);
+        assertThat(scorer.similarity("", "", 0.0)).isEqualTo(1.0);
+    }
+
+    @Test
+    void comparesTitlesOnly() {
+        assertThat(scorer.score("Hello", "Adele", "Hello", "Lionel Richie", MatchScorer.MATCH_THRESHOLD)).isEqualTo(1.0);
+    }
+
+    @Test
+    void returnsZeroBelowMinScore() {
+        assertThat(scorer.similarity("kitten", "sitting", 0.8)).isZero();
+        // length difference alone rules it out
+        assertThat(scorer.similarity("a", "abcdefgh", 0.5)).isZero();
+    }
+
+    @Test
+    void earlyExitAgreesWithFullDistance() {
+        Random random = new Random(42);
+        for (int n = 0; n < 2000; n++) {
+            String s1 = randomText(random);
+            String s2 = randomText(random);
+            double expected = 1.0 - (double) levenshtein(s1, s2) / Math.max(1, Math.max(s1.length(), s2.length()));
+            double minScore = random.nextDouble();
+            double actual = scorer.similarity(s1, s2, minScore);
+            if (expected >= minScore) {
+                assertThat(actual).as("%s / %s", s1, s2).isCloseTo(expected, within(1e-9));
+            } else {
+                assertThat(actual).as("%s / %s", s1, s2).isZero();
+            }
+        }
+    }
+
+    private static String randomText(Random random) {
+        char[] chars = new char[random.nextInt(12)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = "abcAB ".charAt(random.nextInt(6));
+        }
+        return new String(chars);
+    }
+
+    private static int levenshtein(String s1, String s2) {
+        int[][] d = new int[s1.length() + 1][s2.length() + 1];
+        for (int i = 0; i <= s1.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= s2.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= s1.length(); i++) {
+            for (int j = 1; j <= s2.length(); j++) {
+                int cost = Character.toLowerCase(s1.charAt(i - 1)) == Character.toLowerCase(s2.charAt(j - 1)) ? 0 : 1;
+                d[i][j] = Math.min(d[i - 1][j - 1] + cost, Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1));
+            }
+        }
+        return d[s1.length()][s2.length()];
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.tunemerge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+class MinHashBlockerTest {
+
+    private final MinHashBlocker blocker = new MinHashBlocker(20, 4);
+
+    @Test
+    void bandKeysAreDeterministicAndOnePerBand() {
+        assertThat(blocker.bandKeys("bohemian rhapsody queen")).hasSize(20)
+            .containsExactly(blocker.bandKeys("bohemian rhapsody queen"));
+        assertThat(blocker.bandKeys("   ")).isEmpty();
+    }
+
+    @Test
+    void nearDuplicatesBecomeCandidatesOnce() {
+        MinHashBlocker.Buckets buckets = blocker.bucket(List.of(
+            "bohemian rhapsody queen", "get lucky daft punk", "hello adele", "bohemian rhapsody queen"));
+
+        List<Integer> candidates = new ArrayList<>();
+        int count = buckets.newQuery().forEachCandidate("bohemian rhapsody queen", candidates::add);
+
+        assertThat(count).isEqualTo(2);
+        assertThat(candidates).containsExactlyInAnyOrder(0, 3);
+    }
+
+    @Test
+    void unrelatedTextHasNoCandidates() {
+        MinHashBlocker.Buckets buckets = blocker.bucket(List.of("get lucky daft punk", "hello adele"));
+
+        assertThat(buckets.newQuery().forEachCandidate("smells like teen spirit nirvana", candidate -> { })).isZero();
+    }
+
+    @Test
+    void queriesOfOneRequestDoNotSuppressEachOther() {
+        MinHashBlocker.Buckets buckets = blocker.bucket(List.of("get lucky daft punk"));
+        MinHashBlocker.Query query = buckets.newQuery();
+
+        assertThat(query.forEachCandidate("get lucky daft punk", candidate -> { })).isEqualTo(1);
+        assertThat(query.forEachCandidate("get lucky daft punk", candidate -> { })).isEqualTo(1);
+        assertThat(buckets.newQuery().forEachCandidate("get lucky daft punk", candidate -> { })).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsEmptyBanding() {
+        assertThatThrownBy(() -> new MinHashBlocker(0, 4)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
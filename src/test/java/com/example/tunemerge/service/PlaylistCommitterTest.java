@@ -0,0 +1,92 @@
+package com.example.tunemerge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import com.example.tunemerge.model.SearchResult;
+
+class PlaylistCommitterTest {
+
+    private final SpotifyService spotifyService = mock(SpotifyService.class);
+    // writes run on the completing thread, so every chunk is sent by the time its last item completed
+    private final PlaylistCommitter committer =
+        new PlaylistCommitter(spotifyService, "user", "Imported", "From YouTube", Runnable::run);
+
+    @Test
+    void writesChunksInPlaylistOrderWhateverOrderItemsComplete() throws IOException {
+        when(spotifyService.createPlaylistAndGetId("user", "Imported", false, "From YouTube")).thenReturn("playlist");
+
+        // 250 items, every tenth one unmatched, completing in random order
+        List<Integer> order = new ArrayList<>(IntStream.range(0, 250).boxed().toList());
+        Collections.shuffle(order, new Random(7));
+        for (int index : order) {
+            if (index % 10 == 9) {
+                committer.onItemMatched(index, "video " + index, null);
+            } else {
+                committer.onItemMatched(index, "video " + index, new SearchResult("t" + index, "name", "artist"));
+            }
+        }
+        committer.finish().join();
+
+        List<String> expected = IntStream.range(0, 250).filter(index -> index % 10 != 9)
+            .mapToObj(index -> "spotify:track:t" + index).toList();
+        InOrder writes = inOrder(spotifyService);
+        writes.verify(spotifyService).createPlaylistAndGetId("user", "Imported", false, "From YouTube");
+        writes.verify(spotifyService).addTracksToPlaylist("playlist", expected.subList(0, 100), 0, "user");
+        writes.verify(spotifyService).addTracksToPlaylist("playlist", expected.subList(100, 200), 100, "user");
+        writes.verify(spotifyService).addTracksToPlaylist("playlist", expected.subList(200, 225), 200, "user");
+        assertThat(committer.getPlaylistId()).isEqualTo("playlist");
+        assertThat(committer.getWritten()).isEqualTo(225);
+    }
+
+    @Test
+    void holdsItemsBackUntilEarlierOnesComplete() throws IOException {
+        when(spotifyService.createPlaylistAndGetId(any(), any(), eq(false), any())).thenReturn("playlist");
+
+        for (int index = 1; index <= 100; index++) {
+            committer.onItemMatched(index, "video", new SearchResult("t" + index, "name", "artist"));
+        }
+        verify(spotifyService, never()).addTracksToPlaylist(any(), anyList(), anyInt(), any());
+
+        committer.onItemFailed(0, "video", new IOException("throttled"));
+        verify(spotifyService).addTracksToPlaylist(eq("playlist"), anyList(), eq(0), eq("user"));
+    }
+
+    @Test
+    void stopsWritingAfterAFailedChunk() throws IOException {
+        when(spotifyService.createPlaylistAndGetId(any(), any(), eq(false), any())).thenReturn("playlist");
+        when(spotifyService.addTracksToPlaylist(any(), anyList(), eq(0), any()))
+            .thenThrow(new IllegalStateException("write failed"));
+
+        for (int index = 0; index < 150; index++) {
+            committer.onItemMatched(index, "video", new SearchResult("t" + index, "name", "artist"));
+        }
+
+        assertThatThrownBy(() -> committer.finish().join())
+            .isInstanceOf(CompletionException.class)
+            .hasRootCauseMessage("write failed");
+        verify(spotifyService, times(1)).addTracksToPlaylist(any(), anyList(), anyInt(), any());
+        assertThat(committer.getWritten()).isZero();
+    }
+}
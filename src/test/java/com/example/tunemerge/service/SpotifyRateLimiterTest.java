@@ -0,0 +1,119 @@
+package com.example.tunemerge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class SpotifyRateLimiterTest {
+
+    @Test
+    void growsTheLimitByOneAfterAWindowOfFastSuccesses() {
+        SpotifyRateLimiter limiter = limiter(4, Duration.ofSeconds(2), 3);
+
+        for (int i = 0; i < 4; i++) {
+            limiter.execute("user", "search", () -> "ok");
+        }
+        assertThat(limiter.getStats().get("concurrencyLimit")).isEqualTo(5);
+
+        for (int i = 0; i < 5; i++) {
+            limiter.execute("user", "search", () -> "ok");
+        }
+        assertThat(limiter.getStats().get("concurrencyLimit")).isEqualTo(6);
+        assertThat(limiter.getStats().get("inFlight")).isZero();
+    }
+
+    @Test
+    void halvesTheLimitOnceForABurstOfServerErrors() {
+        SpotifyRateLimiter limiter = limiter(8, Duration.ofSeconds(2), 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> limiter.execute("user", "search", () -> {
+                throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+            })).isInstanceOf(HttpServerErrorException.class);
+        }
+
+        assertThat(limiter.getStats().get("concurrencyLimit")).isEqualTo(4);
+        assertThat(limiter.getStats().get("errors")).isEqualTo(3);
+    }
+
+    @Test
+    void slowResponsesCountAsErrors() {
+        SpotifyRateLimiter limiter = limiter(8, Duration.ofMillis(1), 3);
+
+        limiter.execute("user", "search", () -> {
+            sleep(20);
+            return "ok";
+        });
+
+        assertThat(limiter.getStats().get("concurrencyLimit")).isEqualTo(4);
+    }
+
+    @Test
+    void retriesAfterTheRetryAfterOfA429() {
+        SpotifyRateLimiter limiter = limiter(8, Duration.ofSeconds(2), 3);
+        AtomicInteger attempts = new AtomicInteger();
+
+        long start = System.nanoTime();
+        String result = limiter.execute("user", "search", () -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw tooManyRequests("1");
+            }
+            return "ok";
+        });
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertThat(result).isEqualTo("ok");
+        assertThat(attempts).hasValue(2);
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(900);
+        assertThat(limiter.getStats().get("throttled")).isEqualTo(1);
+        assertThat(limiter.getStats().get("retries")).isEqualTo(1);
+        assertThat(limiter.getStats().get("concurrencyLimit")).isEqualTo(4);
+    }
+
+    @Test
+    void givesUpWhenStillThrottledAfterTheLastRetry() {
+        SpotifyRateLimiter limiter = limiter(8, Duration.ofSeconds(2), 2);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThatThrownBy(() -> limiter.execute("user", "search", () -> {
+            attempts.incrementAndGet();
+            throw tooManyRequests("0");
+        })).isInstanceOf(HttpClientErrorException.TooManyRequests.class);
+
+        assertThat(attempts).hasValue(3);
+        assertThat(limiter.getStats().get("throttled")).isEqualTo(3);
+        assertThat(limiter.getStats().get("retries")).isEqualTo(2);
+        assertThat(limiter.getStats().get("inFlight")).isZero();
+    }
+
+    private static SpotifyRateLimiter limiter(int initialConcurrency, Duration latencyTarget, int maxRetries) {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        return new SpotifyRateLimiter(1000, 1000, initialConcurrency, 1, 32, latencyTarget, maxRetries,
+            new UpstreamMetrics(registry), registry);
+    }
+
+    private static HttpClientErrorException tooManyRequests(String retryAfter) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, retryAfter);
+        return HttpClientErrorException.create(HttpStatus.TOO_MANY_REQUESTS, "Too Many Requests", headers, new byte[0], null);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
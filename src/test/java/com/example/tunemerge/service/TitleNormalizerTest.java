@@ -0,0 +1,64 @@
+package com.example.tunemerge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.tunemerge.model.TrackInfo;
+
+class TitleNormalizerTest {
+
+    private final TitleNormalizer normalizer = new TitleNormalizer();
+
+    @Test
+    void splitsArtistAndTitleOnDash() {
+        assertThat(normalizer.parse("Daft Punk - Get Lucky")).isEqualTo(new TrackInfo("Get Lucky", "Daft Punk"));
+        assertThat(normalizer.parse("Daft Punk \u2013 Get Lucky")).isEqualTo(new TrackInfo("Get Lucky", "Daft Punk"));
+    }
+
+    @Test
+    void dropsNoiseGroupsAndWords() {
+        assertThat(normalizer.parse("Adele - Hello (Official Music Video) [HD]"))
+            .isEqualTo(new TrackInfo("Hello", "Adele"));
+        assertThat(normalizer.parse("Queen - Bohemian Rhapsody Official Video Remastered"))
+            .isEqualTo(new TrackInfo("Bohemian Rhapsody", "Queen"));
+    }
+
+    @Test
+    void keepsBracketsThatArePartOfTheTitle() {
+        assertThat(normalizer.parse("Nirvana - Smells Like Teen Spirit (Live)"))
+            .isEqualTo(new TrackInfo("Smells Like Teen Spirit (Live)", "Nirvana"));
+    }
+
+    @Test
+    void dropsCredits() {
+        assertThat(normalizer.parse("Calvin Harris - This Is What You Came For feat. Rihanna"))
+            .isEqualTo(new TrackInfo("This Is What You Came For", "Calvin Harris"));
+        assertThat(normalizer.parse("Calvin Harris - This Is What You Came For (ft. Rihanna)"))
+            .isEqualTo(new TrackInfo("This Is What You Came For", "Calvin Harris"));
+    }
+
+    @Test
+    void colonInsideTitleIsNotASeparator() {
+        assertThat(normalizer.parse("Interstellar: Main Theme"))
+            .isEqualTo(new TrackInfo("Interstellar: Main Theme", ""));
+    }
+
+    @Test
+    void spacedBarSeparatesOnlyWithoutDash() {
+        assertThat(normalizer.parse("Song | Live at X")).isEqualTo(new TrackInfo("Live at X", "Song"));
+        assertThat(normalizer.parse("Artist - Song | Live at X"))
+            .isEqualTo(new TrackInfo("Song | Live at X", "Artist"));
+    }
+
+    @Test
+    void titleWithoutSeparatorHasNoArtist() {
+        assertThat(normalizer.parse("Bohemian Rhapsody")).isEqualTo(new TrackInfo("Bohemian Rhapsody", ""));
+    }
+
+    @Test
+    void foldsToLowerCaseWordsAndKeysByArtistAndTitle() {
+        assertThat(normalizer.fold("  Don't  Stop Me-Now! ")).isEqualTo("don t stop me now");
+        assertThat(normalizer.normalizedKey("Get Lucky", "Daft Punk")).isEqualTo("daft punk|get lucky");
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.tunemerge.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import org.junit.jupiter.api.Test;
+
+class TokenSetScorerTest {
+
+    private final TokenSetScorer scorer = new TokenSetScorer();
+
+    @Test
+    void ignoresCaseWordOrderAndPunctuation() {
+        assertThat(scorer.score("Get Lucky", "Daft Punk", "get lucky", "daft punk", 0.0)).isEqualTo(1.0);
+        assertThat(scorer.score("Lucky, Get!", "Punk Daft", "Get Lucky", "Daft Punk", 0.0)).isEqualTo(1.0);
+    }
+
+    @Test
+    void scoresDiceOfTheWordSets() {
+        // 2 shared words out of 2 + 4
+        assertThat(scorer.score("Get Lucky", "", "Get Lucky", "Daft Punk", 0.0)).isCloseTo(2.0 / 3, within(1e-9));
+        // repeated words count once
+        assertThat(scorer.score("la la la", "", "la", "", 0.0)).isEqualTo(1.0);
+    }
+
+    @Test
+    void returnsZeroWhenTheBoundIsBelowMinScore() {
+        // at most 2 * 1 / (1 + 5)
+        assertThat(scorer.score("Hello", "", "Hello", "Adele Live at Home", MatchScorer.MATCH_THRESHOLD)).isZero();
+    }
+
+    @Test
+    void emptySides() {
+        assertThat(scorer.score("", null, "", null, 0.0)).isEqualTo(1.0);
+        assertThat(scorer.score("Hello", "", "", "", 0.0)).isZero();
+    }
+}